@@ -0,0 +1,68 @@
+package Benchmarks;
+
+import Core.Board;
+import Core.MoveGenerator;
+import Core.Moves;
+import GameSave.MoveRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The fixed corpus every benchmark runs on: the start position and positions from a few
+ * random games. The games come from a seeded Random over MoveGenerator's move order, so every
+ * run (and every build, as long as move generation is unchanged) sees the same positions.
+ */
+public final class BenchmarkPositions {
+    static final long SEED = 20240611L;
+    static final int GAMES = 4;
+    // positions are taken from each game after these many plies, if it lasts that long
+    static final int[] PLIES = {10, 25, 45, 70};
+
+    private BenchmarkPositions() {
+    }
+
+    /**
+     * A fresh copy of the corpus, so a benchmark can move pieces without touching another's boards.
+     */
+    public static List<Board> corpus() {
+        List<Board> boards = new ArrayList<>();
+        boards.add(new Board("benchmark"));
+        Random random = new Random(SEED);
+        for (int game = 0; game < GAMES; game++) {
+            Board board = new Board("benchmark");
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int ply = 0;
+            for (int target : PLIES) {
+                for (; ply < target; ply++) {
+                    int count = MoveGenerator.generateLegal(board, board.getCurrentTurn(), moves, 0);
+                    if (count == 0) break;
+                    int move = moves[random.nextInt(count)];
+                    board.makeMove(Moves.from(move), Moves.to(move));
+                }
+                if (ply < target) break; // the game ended early
+                boards.add(new Board(board));
+            }
+        }
+        return boards;
+    }
+
+    /**
+     * Moves of one seeded random game, for save and load benchmarks.
+     */
+    public static List<MoveRecord> game(int plies) {
+        Board board = new Board("benchmark");
+        Random random = new Random(SEED);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        List<MoveRecord> history = new ArrayList<>();
+        for (int ply = 0; ply < plies; ply++) {
+            int count = MoveGenerator.generateLegal(board, board.getCurrentTurn(), moves, 0);
+            if (count == 0) break;
+            int move = moves[random.nextInt(count)];
+            history.add(Moves.toRecord(move));
+            board.makeMove(Moves.from(move), Moves.to(move));
+        }
+        return history;
+    }
+}
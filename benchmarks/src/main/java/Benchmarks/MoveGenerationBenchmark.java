@@ -0,0 +1,133 @@
+package Benchmarks;
+
+import Core.Board;
+import Core.BoardEncoding;
+import Core.MoveGenerator;
+import data.PieceType;
+import data.Position;
+import data.Side;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pieces.Piece;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The move generation entry points the UI and the rules use, each over the whole corpus
+ * (see BenchmarkPositions), so a score is the time for one pass over every position.
+ * Board caches legal moves by position, so every invocation gets fresh copies of the boards
+ * and times the generation itself rather than cache hits; generateLegal times the raw
+ * generator without the List building on top.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+    private Board[] corpus;
+    private Board[] boards;
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    @Setup
+    public void setUp() {
+        corpus = BenchmarkPositions.corpus().toArray(new Board[0]);
+        boards = new Board[corpus.length];
+    }
+
+    @Setup(Level.Invocation)
+    public void freshBoards() {
+        for (int i = 0; i < corpus.length; i++) {
+            boards[i] = new Board(corpus[i]);
+        }
+    }
+
+    /**
+     * Every piece of one type in the corpus, with the board it stands on and where.
+     */
+    @State(Scope.Thread)
+    public static class Pieces {
+        @Param({"GENERAL", "ADVISOR", "ELEPHANT", "CHARIOT", "HORSE", "CANNON", "SOLDIER"})
+        public PieceType pieceType;
+
+        Board[] onCorpus;
+        Board[] boards;
+        Piece[] pieces;
+        Position[] positions;
+
+        @Setup
+        public void setUp() {
+            List<Board> onBoards = new ArrayList<>();
+            List<Piece> found = new ArrayList<>();
+            List<Position> at = new ArrayList<>();
+            for (Board board : BenchmarkPositions.corpus()) {
+                for (int sq = 0; sq < BoardEncoding.SQUARES; sq++) {
+                    Piece piece = board.getPieceAt(sq);
+                    if (piece != null && piece.pieceType == pieceType) {
+                        onBoards.add(board);
+                        found.add(piece);
+                        at.add(BoardEncoding.toPosition(sq));
+                    }
+                }
+            }
+            onCorpus = onBoards.toArray(new Board[0]);
+            boards = new Board[onCorpus.length];
+            pieces = found.toArray(new Piece[0]);
+            positions = at.toArray(new Position[0]);
+        }
+
+        // one fresh copy per board, shared by the pieces on it
+        @Setup(Level.Invocation)
+        public void freshBoards() {
+            Map<Board, Board> copies = new IdentityHashMap<>();
+            for (int i = 0; i < onCorpus.length; i++) {
+                boards[i] = copies.computeIfAbsent(onCorpus[i], Board::new);
+            }
+        }
+    }
+
+    @Benchmark
+    public void generateLegal(Blackhole bh) {
+        for (Board board : corpus) {
+            bh.consume(MoveGenerator.generateLegal(board, board.getCurrentTurn(), moves, 0));
+        }
+    }
+
+    @Benchmark
+    public void allLegalMoves(Blackhole bh) throws Exception {
+        for (Board board : boards) {
+            bh.consume(board.getAllLegalMoves(board.getCurrentTurn()));
+        }
+    }
+
+    @Benchmark
+    public void pieceLegalMoves(Pieces corpus, Blackhole bh) throws Exception {
+        for (int i = 0; i < corpus.pieces.length; i++) {
+            bh.consume(corpus.pieces[i].getLegalMoves(corpus.boards[i], corpus.positions[i]));
+        }
+    }
+
+    @Benchmark
+    public void generalInCheck(Blackhole bh) {
+        for (Board board : boards) {
+            bh.consume(board.isGeneralInCheck(Side.RED));
+            bh.consume(board.isGeneralInCheck(Side.BLACK));
+        }
+    }
+}
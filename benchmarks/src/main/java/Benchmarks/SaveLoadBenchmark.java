@@ -0,0 +1,59 @@
+package Benchmarks;
+
+import GameSave.ChineseChessDataSaver;
+import GameSave.MoveRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving a game and loading it back through ChineseChessDataSaver, on a temporary file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveLoadBenchmark {
+    private static final String USERNAME = "benchmark";
+
+    @Param({"20", "80", "200"})
+    public int plies;
+
+    private List<MoveRecord> moves;
+    private ChineseChessDataSaver saver;
+    private Path file;
+
+    @Setup
+    public void setUp() throws Exception {
+        moves = BenchmarkPositions.game(plies);
+        saver = new ChineseChessDataSaver();
+        file = Files.createTempFile("benchmark", ".dat");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<MoveRecord> roundTrip() throws Exception {
+        saver.saveGameData(USERNAME, moves, file.toString());
+        return saver.loadGameData(USERNAME, file.toString());
+    }
+}
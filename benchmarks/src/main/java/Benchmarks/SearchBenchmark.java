@@ -0,0 +1,55 @@
+package Benchmarks;
+
+import AIMove.AIMove;
+import Core.Board;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AIMove.findBestMove to a fixed depth on every corpus position, one thread, no book or tables.
+ * Each invocation starts from an empty transposition table, so earlier runs cannot make it faster.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    @Param({"2", "3", "4"})
+    public int depth;
+
+    private Board[] boards;
+    private AIMove aiMove;
+
+    @Setup
+    public void setUp() {
+        boards = BenchmarkPositions.corpus().toArray(new Board[0]);
+        aiMove = new AIMove(depth);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        aiMove.getTranspositionTable().clear();
+    }
+
+    @Benchmark
+    public void findBestMove(Blackhole bh) throws Exception {
+        for (Board board : boards) {
+            bh.consume(aiMove.findBestMove(board, board.getCurrentTurn()));
+        }
+    }
+}
@@ -1,23 +1,81 @@
 package AIMove;
 
 import Core.Board;
+import Core.BoardEncoding;
+import Core.MoveGenerator;
+import Core.Moves;
+import Core.PieceSquareTables;
 import GameSave.MoveRecord;
-import data.Position;
+import OpeningBook.OpeningBook;
+import Tablebase.Tablebases;
 import data.Side;
 import data.PieceType;
-import pieces.Piece;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
 
 /**
- * Simple AI that searches to a fixed depth using negamax with alpha-beta.
- * This implementation copies the board for each simulated move (non-destructive).
+ * Simple AI that searches using negamax with alpha-beta, deepening one ply at a time
+ * until maxDepth or the time limit is reached.
+ * Results are kept in a transposition table keyed by the board's Zobrist key, so positions
+ * reached again through a different move order are not searched twice.
+ * With more than one thread the search is Lazy SMP: helper threads search copies of the
+ * board at the same time and share only the transposition table with the main thread,
+ * whose answer is the one returned. See SearchWorker.
+ * With pondering on, the engine keeps thinking while the opponent does: see startPondering.
  */
 
 // this algorithm partly come from internet
 public class AIMove {
     private int maxDepth;
-    private static final int MATE_SCORE = 1000000;
+    public static final int DEFAULT_TT_SIZE_MB = 16;
+    // deepest iteration, for time limited searches that set no depth of their own
+    public static final int MAX_DEPTH = 32;
+    // longest line shown for a tablebase answer
+    private static final int MAX_TABLEBASE_LINE = 32;
+    // background searches run here, see findBestMoveAsync
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    // helper threads are CPU bound for the whole search, so they get platform threads of their own
+    private static final ExecutorService HELPER_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "AIMove-helper");
+        t.setDaemon(true);
+        return t;
+    });
+    private TranspositionTable transpositionTable = new TranspositionTable(DEFAULT_TT_SIZE_MB);
+    private long timeLimitMillis = 0;
+    private int threadCount = 1;
+    private boolean nullMovePruning = true;
+    private boolean lateMoveReductions = true;
+    private OpeningBook openingBook;
+    private Tablebases tablebases;
+    private boolean pondering = false;
+    private boolean verbose = false;
+
+    // the search running on the opponent's time, guarded by ponderLock since search() holds
+    // this object's lock for as long as it runs
+    private final Object ponderLock = new Object();
+    private CompletableFuture<SearchResult> ponderSearch;
+    private AtomicBoolean ponderStop;
+    private long ponderKey;
+    private Side ponderSide;
+    private long ponderStart;
+
+    // statistics of the last search
+    private int completedDepth;
+    private int lastScore;
+    private long lastNodes;
+    private long lastElapsedMillis;
+    private long lastCutoffs;
+    private long lastFirstMoveCutoffs;
+
     private MoveRecord curSuggestedMove;
     public MoveRecord getCurSuggestedMove() {
         return curSuggestedMove;
@@ -26,129 +84,414 @@ public class AIMove {
         this.curSuggestedMove = curSuggestedMove;
     }
     public AIMove(int maxDepth){
-        this.maxDepth = Math.max(1, maxDepth);
+        setMaxDepth(maxDepth);
     }
     public void setMaxDepth(int depth){
-        this.maxDepth=Math.max(1, depth);
+        this.maxDepth=Math.min(MAX_DEPTH, Math.max(1, depth));
+    }
+
+    /**
+     * Wall-clock budget per move in milliseconds, 0 to always search to maxDepth.
+     */
+    public void setTimeLimit(long millis){
+        this.timeLimitMillis = Math.max(0, millis);
+    }
+    public long getTimeLimit(){
+        return timeLimitMillis;
+    }
+
+    /**
+     * Number of threads searching each move, 1 for a single threaded search.
+     */
+    public void setThreadCount(int threads){
+        this.threadCount = Math.max(1, threads);
+    }
+    public int getThreadCount(){
+        return threadCount;
+    }
+
+    /**
+     * Null-move pruning, on by default. Off searches every node to full depth, for comparing node counts.
+     */
+    public void setNullMovePruning(boolean enabled){
+        this.nullMovePruning = enabled;
+    }
+    public boolean isNullMovePruning(){
+        return nullMovePruning;
+    }
+
+    /**
+     * Late-move reductions for quiet moves, on by default.
+     */
+    public void setLateMoveReductions(boolean enabled){
+        this.lateMoveReductions = enabled;
+    }
+    public boolean isLateMoveReductions(){
+        return lateMoveReductions;
+    }
+
+    /**
+     * Prints a line per completed depth with the score, node count and expected line, off by
+     * default; for the test harness, not for every move of a game.
+     */
+    public void setVerbose(boolean verbose){
+        this.verbose = verbose;
+    }
+    public boolean isVerbose(){
+        return verbose;
+    }
+
+    /**
+     * Book consulted before searching, null for none. A position found in it is answered
+     * with a book move straight away.
+     */
+    public void setOpeningBook(OpeningBook book){
+        this.openingBook = book;
+    }
+    public OpeningBook getOpeningBook(){
+        return openingBook;
+    }
+
+    /**
+     * Endgame tables, null for none. Once the pieces left are few enough for the tables,
+     * a won or lost position is answered from them without searching, and the search
+     * reads exact results from them at every node they cover.
+     */
+    public void setTablebases(Tablebases tablebases){
+        this.tablebases = tablebases;
+    }
+    public Tablebases getTablebases(){
+        return tablebases;
+    }
+
+    /**
+     * Replaces the transposition table with an empty one of the given size.
+     */
+    public void setTranspositionTableSize(int sizeMB){
+        this.transpositionTable = new TranspositionTable(sizeMB);
+    }
+    public TranspositionTable getTranspositionTable(){
+        return transpositionTable;
     }
 
 
 
     public MoveRecord findBestMove(Board board, Side side) throws Exception {
-        MoveRecord bestMove = null;
-        int bestScore = Integer.MIN_VALUE;
-
-        // Iterate all pieces of the side and their legal moves
-        for (int r = 0; r < Board.ROWS; r++){
-            for (int c = 0; c < Board.COLS; c++){
-                Position from = new Position(r, c);
-                Piece p = board.getPieceAt(from);
-                if (p == null || p.side != side) continue;
-
-                List<Position> moves = p.getLegalMoves(board, from);
-                if (moves == null || moves.isEmpty()) continue;
-
-                for (Position to : moves){
-                    // simulate on a copied board
-                    Board sim = copyBoard(board);
-                    sim.movePiece(from, to, false, true);
-                    sim.switchTurn();
-
-                    int score = -negamax(sim, maxDepth - 1, Integer.MIN_VALUE/2, Integer.MAX_VALUE/2, opposite(side));
-
-                    if (score > bestScore){
-                        bestScore = score;
-                        bestMove = new MoveRecord(from, to);
-                    }
-                }
-            }
-        }
+        return findBestMove(board, side, timeLimitMillis);
+    }
 
-        return bestMove;
+    /**
+     * Iterative deepening: searches depth 1, 2, ... up to maxDepth and stops early once the
+     * time budget runs out, answering with the best move of the last depth that completed.
+     * Depth 1 always completes, so there is an answer however small the budget.
+     * @param timeLimitMillis wall-clock budget, 0 for none
+     */
+    public MoveRecord findBestMove(Board board, Side side, long timeLimitMillis) throws Exception {
+        SearchResult result = findBestLine(board, side, timeLimitMillis);
+        return result == null ? null : result.move;
     }
 
-    private int negamax(Board board, int depth, int alpha, int beta, Side side) throws Exception{
-        List<Position> moves = board.getAllLegalMoves(side);
+    /**
+     * Like findBestMove, but also returns the principal variation, the line the search
+     * expects both sides to play after the move. null if the side has no legal move.
+     */
+    public SearchResult findBestLine(Board board, Side side) throws Exception {
+        return findBestLine(board, side, timeLimitMillis);
+    }
 
-        if ((moves == null || moves.isEmpty()) || depth == 0){
-            if (moves == null || moves.isEmpty()){
-                // no legal moves: mate or stalemate
-                if (board.isGeneralInCheck(side)){
-                    return -MATE_SCORE - depth; // losing side
-                }else{
-                    return 0; // stalemate
-                }
+    public SearchResult findBestLine(Board board, Side side, long timeLimitMillis) throws Exception {
+        return answer(board, side, timeLimitMillis, new AtomicBoolean(false));
+    }
+
+    /**
+     * Starts a search on a copy of the board on a background thread, so the caller's board
+     * stays free to use. Cancelling the returned future stops the search at its next check.
+     * The future completes with null if the side has no legal move or the search was stopped
+     * before finishing depth 1.
+     */
+    public CompletableFuture<MoveRecord> findBestMoveAsync(Board board, Side side){
+        return searchAsync(board, side, result -> result == null ? null : result.move);
+    }
+
+    /**
+     * findBestMoveAsync with the principal variation, see findBestLine.
+     */
+    public CompletableFuture<SearchResult> findBestLineAsync(Board board, Side side){
+        return searchAsync(board, side, result -> result);
+    }
+
+    private <T> CompletableFuture<T> searchAsync(Board board, Side side, Function<SearchResult, T> answer){
+        Board snapshot = new Board(board);
+        long limit = timeLimitMillis;
+        AtomicBoolean stop = new AtomicBoolean(false);
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+            try {
+                return answer.apply(answer(snapshot, side, limit, stop));
+            } catch (Exception e) {
+                throw new CompletionException(e);
             }
-            return evaluate(board, side);
-        }
-
-        int max = Integer.MIN_VALUE;
-
-        // We need actual from->to moves; board.getAllLegalMoves only returns target squares, so iterate over pieces
-        for (int r = 0; r < Board.ROWS; r++){
-            for (int c = 0; c < Board.COLS; c++){
-                Position from = new Position(r, c);
-                Piece p = board.getPieceAt(from);
-                if (p == null || p.side != side) continue;
-                List<Position> legal = p.getLegalMoves(board, from);
-                if (legal == null) continue;
-                for (Position to : legal){
-                    Board sim = copyBoard(board);
-                    sim.movePiece(from, to, false,true);
-                    sim.switchTurn();
-                    int score = -negamax(sim, depth - 1, -beta, -alpha, opposite(side));
-                    if (score > max) max = score;
-                    if (score > alpha) alpha = score;
-                    if (alpha >= beta) return alpha; // cutoff
+        }, SEARCH_EXECUTOR);
+        future.whenComplete((move, error) -> {
+            if (future.isCancelled()) stop.set(true);
+        });
+        return future;
+    }
+
+    /**
+     * Pondering: once the engine has moved, search the position after the opponent's expected
+     * reply (the second move of the principal variation) while the opponent thinks.
+     * If the opponent plays it, the next search for that position is a ponder hit and answers
+     * from what the ponder search found; any other position stops the ponder search, and the
+     * search that follows still starts from the transposition table it filled.
+     * The ponder search has the time limit of a normal search and stops once it is used up.
+     */
+    public void setPondering(boolean pondering){
+        this.pondering = pondering;
+        if (!pondering) stopPondering();
+    }
+
+    public boolean isPondering(){
+        return pondering;
+    }
+
+    /**
+     * Starts pondering, see setPondering. Does nothing if pondering is off, the line is too
+     * short to predict a reply, or the predicted reply is not legal on the board.
+     * @param board the position right after the engine's move, the opponent to move
+     * @param result the search that chose the engine's move
+     */
+    public void startPondering(Board board, SearchResult result){
+        stopPondering();
+        if (!pondering || result == null || result.principalVariation.size() < 2) return;
+        Board snapshot = new Board(board);
+        Side opponent = snapshot.getCurrentTurn();
+        MoveRecord reply = result.principalVariation.get(1);
+        int from = BoardEncoding.square(reply.fromPosition);
+        int to = BoardEncoding.square(reply.toPosition);
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(snapshot, opponent, legal, 0);
+        boolean found = false;
+        for (int i = 0; i < count && !found; i++){
+            found = Moves.from(legal[i]) == from && Moves.to(legal[i]) == to;
+        }
+        if (!found) return;
+        snapshot.makeMove(from, to);
+
+        Side side = opponent.opposite();
+        // the same budget as a search of its own, counted from now: answer takes the result as
+        // it is once that much time has passed, so thinking on would only keep every core busy
+        // until the engine is next asked for a move
+        long limit = timeLimitMillis;
+        int depth = limit > 0 ? MAX_DEPTH : maxDepth;
+        AtomicBoolean stop = new AtomicBoolean(false);
+        synchronized (ponderLock){
+            ponderKey = snapshot.getZobristKey();
+            ponderSide = side;
+            ponderStop = stop;
+            ponderStart = System.currentTimeMillis();
+            ponderSearch = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return search(snapshot, side, limit, depth, stop);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
                 }
-            }
+            }, SEARCH_EXECUTOR);
         }
+    }
 
-        return max;
+    /**
+     * Stops pondering without using its result, e.g. when the game is reset or a move is taken back.
+     */
+    public void stopPondering(){
+        synchronized (ponderLock){
+            if (ponderStop != null) ponderStop.set(true);
+            ponderSearch = null;
+            ponderStop = null;
+        }
     }
 
-    private Board copyBoard(Board board){
-        Board sim = new Board("sim");
-        for (int r = 0; r < Board.ROWS; r++){
-            for (int c = 0; c < Board.COLS; c++){
-                Position p = new Position(r, c);
-                sim.setPieceAt(p, board.getPieceAt(p));
-            }
+    /**
+     * Stops pondering unless the board is at the position being pondered, for after the
+     * opponent's move: a different move makes the ponder search useless, and nothing else
+     * would stop it until the engine is asked for a move.
+     */
+    public void stopPonderingUnlessAt(Board board){
+        synchronized (ponderLock){
+            if (ponderSearch != null && ponderSide == board.getCurrentTurn() && ponderKey == board.getZobristKey()) return;
         }
-        // Keep the same current turn
-        while (sim.getCurrentTurn() != board.getCurrentTurn()) sim.switchTurn();
-        return sim;
+        stopPondering();
     }
 
-    private Side opposite(Side s){
-        return s == Side.RED ? Side.BLACK : Side.RED;
+    // a ponder hit answers from the ponder search when it got as far as this search would have
+    // (its depth, or its time budget), otherwise searches on from the warm transposition table
+    // for what is left of the budget
+    private SearchResult answer(Board board, Side side, long timeLimitMillis, AtomicBoolean stop) throws Exception {
+        CompletableFuture<SearchResult> pondered;
+        long ponderedMillis;
+        synchronized (ponderLock){
+            boolean hit = ponderSearch != null && ponderSide == side && ponderKey == board.getZobristKey();
+            pondered = hit ? ponderSearch : null;
+            ponderedMillis = System.currentTimeMillis() - ponderStart;
+            if (ponderStop != null) ponderStop.set(true);
+            ponderSearch = null;
+            ponderStop = null;
+        }
+        if (pondered == null){
+            return search(board, side, timeLimitMillis, maxDepth, stop);
+        }
+        SearchResult result;
+        try {
+            result = pondered.join();
+        } catch (CompletionException e) {
+            result = null;
+        }
+        if (result != null && (result.depth >= maxDepth || result.depth == 0
+                || (timeLimitMillis > 0 && ponderedMillis >= timeLimitMillis))){
+            return result;
+        }
+        long left = timeLimitMillis > 0 ? Math.max(1, timeLimitMillis - ponderedMillis) : 0;
+        return search(board, side, left, maxDepth, stop);
     }
 
-    private int evaluate(Board board, Side side){
-        int score = 0;
-        for (int r = 0; r < Board.ROWS; r++){
-            for (int c = 0; c < Board.COLS; c++){
-                Position pos = new Position(r, c);
-                Piece p = board.getPieceAt(pos);
-                if (p == null) continue;
-                int val = pieceValue(p.pieceType);
-                score += (p.side == side) ? val : -val;
+    // one search at a time per AIMove: the statistics below belong to it
+    private synchronized SearchResult search(Board board, Side side, long timeLimitMillis, int maxDepth, AtomicBoolean stop) throws Exception {
+        if (stop.get()) return null;
+        if (openingBook != null){
+            int bookMove = openingBook.pickMove(board, side);
+            if (bookMove != Moves.NONE){
+                clearStatistics();
+                MoveRecord record = Moves.toRecord(bookMove);
+                return new SearchResult(record, List.of(record), 0, 0);
             }
         }
-        return score;
+        if (tablebases != null){
+            SearchResult result = tablebaseLine(board, side);
+            if (result != null) return result;
+        }
+        long start = System.currentTimeMillis();
+        long deadline = timeLimitMillis > 0 ? start + timeLimitMillis : Long.MAX_VALUE;
+
+        // helpers run until the main worker is done, then are told to stop
+        AtomicBoolean helperStop = new AtomicBoolean(false);
+        SearchWorker[] helpers = new SearchWorker[threadCount - 1];
+        Future<?>[] running = new Future<?>[helpers.length];
+        for (int i = 0; i < helpers.length; i++){
+            SearchWorker helper = new SearchWorker(new Board(board), transpositionTable, helperStop, deadline, i + 1,
+                    nullMovePruning, lateMoveReductions, tablebases);
+            helpers[i] = helper;
+            running[i] = HELPER_EXECUTOR.submit(() -> helper.iterate(side, maxDepth, false));
+        }
+
+        SearchWorker main = new SearchWorker(board, transpositionTable, stop, deadline, 0,
+                nullMovePruning, lateMoveReductions, tablebases);
+        try {
+            main.iterate(side, maxDepth, verbose);
+        } finally {
+            helperStop.set(true);
+        }
+        for (Future<?> f : running){
+            f.get();
+        }
+
+        completedDepth = main.getCompletedDepth();
+        lastScore = main.getBestScore();
+        lastNodes = main.getNodes();
+        lastCutoffs = main.getCutoffs();
+        lastFirstMoveCutoffs = main.getFirstMoveCutoffs();
+        for (SearchWorker helper : helpers){
+            lastNodes += helper.getNodes();
+            lastCutoffs += helper.getCutoffs();
+            lastFirstMoveCutoffs += helper.getFirstMoveCutoffs();
+        }
+        lastElapsedMillis = System.currentTimeMillis() - start;
+        // stopped from outside during depth 1: there is no move worth returning
+        if (main.getBestMove() == Moves.NONE) return null;
+        List<MoveRecord> line = new ArrayList<>();
+        for (int move : main.getPrincipalVariation()){
+            line.add(Moves.toRecord(move));
+        }
+        return new SearchResult(Moves.toRecord(main.getBestMove()), line, lastScore, completedDepth);
     }
 
-    private int pieceValue(PieceType t){
-        switch (t){
-            case GENERAL: return 100000;
-            case CHARIOT: return 900;
-            case CANNON: return 450;
-            case HORSE: return 400;
-            case ELEPHANT: return 250;
-            case ADVISOR: return 250;
-            case SOLDIER: return 200;
-            default: return 0;
+    // for an answer found without searching, so the statistics do not describe an earlier search
+    private void clearStatistics(){
+        completedDepth = 0;
+        lastScore = 0;
+        lastNodes = 0;
+        lastElapsedMillis = 0;
+        lastCutoffs = 0;
+        lastFirstMoveCutoffs = 0;
+    }
+
+    // the tables' best line from a won or lost position, null if they do not decide it
+    private SearchResult tablebaseLine(Board board, Side side){
+        int result = tablebases.probe(board, side);
+        int first = tablebases.pickMove(board, side);
+        if (first == Moves.NONE) return null;
+
+        List<MoveRecord> line = new ArrayList<>();
+        int[] played = new int[MAX_TABLEBASE_LINE];
+        int n = 0;
+        Side mover = side;
+        for (int move = first; move != Moves.NONE && n < played.length; move = tablebases.pickMove(board, mover)){
+            line.add(Moves.toRecord(move));
+            played[n++] = board.makeMove(Moves.from(move), Moves.to(move));
+            mover = mover.opposite();
         }
+        while (n > 0){
+            board.unmakeMove(played[--n]);
+        }
+        clearStatistics();
+        lastScore = SearchWorker.tablebaseScore(result, 0);
+        return new SearchResult(Moves.toRecord(first), line, lastScore, 0);
+    }
+
+    /**
+     * Deepest iteration the last findBestMove completed.
+     */
+    public int getCompletedDepth(){
+        return completedDepth;
+    }
+
+    /**
+     * Score of the last findBestMove from the mover's point of view.
+     */
+    public int getLastScore(){
+        return lastScore;
+    }
+
+    /**
+     * Nodes searched by all threads during the last findBestMove.
+     */
+    public long getLastNodes(){
+        return lastNodes;
     }
-}
 
+    public long getLastNodesPerSecond(){
+        return lastNodes * 1000 / Math.max(1, lastElapsedMillis);
+    }
+
+    /**
+     * Beta cutoffs during the last findBestMove.
+     */
+    public long getLastCutoffs(){
+        return lastCutoffs;
+    }
+
+    /**
+     * Share of the last search's beta cutoffs that came from the first move tried, in percent.
+     * The closer to 100 the better the move ordering.
+     */
+    public double getFirstMoveCutoffRate(){
+        return lastCutoffs == 0 ? 0.0 : 100.0 * lastFirstMoveCutoffs / lastCutoffs;
+    }
+
+    // Board keeps the evaluation up to date on every move, so this is a field read
+    static int evaluate(Board board, Side side){
+        return board.getEvaluation(side);
+    }
+
+    static int pieceValue(PieceType t){
+        return PieceSquareTables.pieceValue(t);
+    }
+}
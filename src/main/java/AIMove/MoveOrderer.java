@@ -0,0 +1,96 @@
+package AIMove;
+
+import Core.BoardEncoding;
+import Core.MoveGenerator;
+import Core.Moves;
+
+/**
+ * Orders the moves of a node so alpha-beta finds its cutoffs early:
+ * the hash move first, then captures by MVV-LVA (most valuable victim, least valuable attacker),
+ * then the two killer moves of the ply, then the remaining quiet moves by their history score.
+ * Moves are scored once per node and picked one at a time, so a node cut off after its first
+ * move never pays for sorting the rest.
+ * One per SearchWorker, the tables are not shared between threads.
+ */
+class MoveOrderer {
+    private static final int HASH_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 28;
+    private static final int KILLER_SCORE = 1 << 27;
+    // history scores are halved once one passes this, so they stay below the killers
+    private static final int HISTORY_LIMIT = 1 << 24;
+
+    private final int[][] scores = new int[SearchWorker.MAX_PLY][MoveGenerator.MAX_MOVES];
+    // killers[ply][slot], from/to only (see Moves.squares)
+    private final int[][] killers = new int[SearchWorker.MAX_PLY][2];
+    // history[moving piece code][to square]
+    private final int[][] history = new int[BoardEncoding.CODES][BoardEncoding.SQUARES];
+
+    /**
+     * Scores moves[0..count) of the node at ply, hashMove being the transposition table move or 0.
+     */
+    void score(int[] moves, int count, int ply, int hashMove) {
+        int[] s = scores[ply];
+        int hash = Moves.squares(hashMove);
+        int[] killer = killers[ply];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int squares = Moves.squares(move);
+            if (hashMove != Moves.NONE && squares == hash) {
+                s[i] = HASH_SCORE;
+            } else if (Moves.isCapture(move)) {
+                s[i] = CAPTURE_SCORE
+                        + 10 * AIMove.pieceValue(BoardEncoding.typeOf(Moves.captured(move)))
+                        - AIMove.pieceValue(BoardEncoding.typeOf(Moves.moving(move)));
+            } else if (squares == killer[0]) {
+                s[i] = KILLER_SCORE + 1;
+            } else if (squares == killer[1]) {
+                s[i] = KILLER_SCORE;
+            } else {
+                s[i] = history[Moves.moving(move)][Moves.to(move)];
+            }
+        }
+    }
+
+    /**
+     * Swaps the best scored move of moves[index..count) into moves[index] and returns it.
+     */
+    int pick(int[] moves, int count, int index, int ply) {
+        int[] s = scores[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (s[i] > s[best]) best = i;
+        }
+        if (best != index) {
+            int move = moves[best];
+            moves[best] = moves[index];
+            moves[index] = move;
+            int score = s[best];
+            s[best] = s[index];
+            s[index] = score;
+        }
+        return moves[index];
+    }
+
+    /**
+     * A quiet move caused a beta cutoff: remember it as a killer and raise its history.
+     */
+    void recordCutoff(int move, int ply, int depth) {
+        if (Moves.isCapture(move)) return;
+        int squares = Moves.squares(move);
+        int[] killer = killers[ply];
+        if (killer[0] != squares) {
+            killer[1] = killer[0];
+            killer[0] = squares;
+        }
+        int[] h = history[Moves.moving(move)];
+        int to = Moves.to(move);
+        h[to] += depth * depth;
+        if (h[to] > HISTORY_LIMIT) {
+            for (int[] row : history) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package AIMove;
+
+import GameSave.MoveRecord;
+
+import java.util.List;
+
+/**
+ * Outcome of a search: the move to play and the line the search expects to follow it.
+ */
+public class SearchResult {
+    public final MoveRecord move;
+    // starts with move, then the expected replies alternating between the sides
+    public final List<MoveRecord> principalVariation;
+    // from the mover's point of view
+    public final int score;
+    public final int depth;
+
+    public SearchResult(MoveRecord move, List<MoveRecord> principalVariation, int score, int depth) {
+        this.move = move;
+        this.principalVariation = List.copyOf(principalVariation);
+        this.score = score;
+        this.depth = depth;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (MoveRecord m : principalVariation) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(m);
+        }
+        return sb.toString();
+    }
+}
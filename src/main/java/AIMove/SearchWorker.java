@@ -0,0 +1,502 @@
+package AIMove;
+
+import Core.Board;
+import Core.BoardEncoding;
+import Core.MoveGenerator;
+import Core.Moves;
+import Tablebase.Tablebases;
+import data.PieceType;
+import data.Side;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One search thread: its own board, move buffers and counters.
+ * AIMove runs a main worker and, when more than one thread is configured, helper workers
+ * on copies of the board (Lazy SMP). Workers only share the transposition table, so the
+ * helpers speed up the main worker by filling it with results it would otherwise compute itself.
+ */
+class SearchWorker {
+    static final int MATE_SCORE = 1000000;
+    static final int MAX_PLY = 64;
+    // scores beyond this are mates, stored in the transposition table relative to the node
+    static final int MATE_BOUND = MATE_SCORE - MAX_PLY;
+    // losing by perpetual check: lost, but not a mate the table has to adjust for distance
+    static final int PERPETUAL_SCORE = MATE_BOUND / 2;
+    // a capture that cannot lift the score to alpha even with this much extra is not searched
+    private static final int DELTA_MARGIN = 200;
+    // depth taken off the null move search
+    private static final int NULL_MOVE_REDUCTION = 2;
+    // quiet moves after this many are searched one ply shallower first
+    private static final int LMR_FULL_DEPTH_MOVES = 3;
+    private static final int LMR_MIN_DEPTH = 3;
+    private static final int ASPIRATION_MIN_DEPTH = 4;
+    private static final int ASPIRATION_WINDOW = 50;
+    // past this a failing window is opened all the way
+    private static final int MAX_ASPIRATION_WINDOW = 1000;
+
+    private static final PieceType[] ATTACKING_TYPES = {PieceType.CHARIOT, PieceType.HORSE, PieceType.CANNON};
+
+    private final Board board;
+    private final TranspositionTable transpositionTable;
+    // one move buffer per ply, so generating moves during the search allocates nothing
+    private final int[][] moveBuffers = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final MoveOrderer orderer = new MoveOrderer();
+    // set from outside to stop every worker of the search
+    private final AtomicBoolean stop;
+    private final long deadline;
+    // 0 for the main worker; helpers use it to search a little differently
+    private final int helperIndex;
+    private final boolean nullMovePruning;
+    private final boolean lateMoveReductions;
+    // endgame tables, null for none
+    private final Tablebases tablebases;
+
+    private boolean canAbort;
+    private boolean aborted;
+    // read only once the worker is done (after iterate returns or its future is joined), so a plain field
+    private long nodes;
+    // beta cutoffs, and how many of them came from the first move searched
+    private long cutoffs;
+    private long firstMoveCutoffs;
+
+    // result of the last completed iteration
+    private int completedDepth;
+    private int bestMove = Moves.NONE;
+    private int bestScore;
+    private int[] principalVariation = new int[0];
+
+    // triangular principal variation table: pv[ply][ply..pvLength[ply]) is the best line found from ply
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private final int[] rootLine = new int[MAX_PLY + 1];
+    private int rootLineLength;
+
+    // whether the side to move was in check at each ply of the current line
+    private final boolean[] inCheckAt = new boolean[MAX_PLY + 1];
+    // ply right after the latest null move on the current line, 0 for none; a repetition
+    // through a null move is no repetition
+    private int nullPly = 0;
+
+    SearchWorker(Board board, TranspositionTable transpositionTable, AtomicBoolean stop, long deadline, int helperIndex,
+                 boolean nullMovePruning, boolean lateMoveReductions, Tablebases tablebases) {
+        this.board = board;
+        this.transpositionTable = transpositionTable;
+        this.stop = stop;
+        this.deadline = deadline;
+        this.helperIndex = helperIndex;
+        this.nullMovePruning = nullMovePruning;
+        this.lateMoveReductions = lateMoveReductions;
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Iterative deepening: searches depth 1, 2, ... up to maxDepth and stops early once the
+     * deadline passes or the stop flag is set. Depth 1 only gives way to the stop flag, so the
+     * main worker always has an answer however small the budget.
+     * From ASPIRATION_MIN_DEPTH on each depth starts with a narrow window around the previous
+     * score, widened on the failing side until the score falls inside it.
+     */
+    void iterate(Side side, int maxDepth, boolean verbose) {
+        long start = System.currentTimeMillis();
+        int[] moves = moveBuffers[0];
+        int count = MoveGenerator.generateLegal(board, side, moves, 0);
+        if (count == 0) return;
+
+        // helpers start from a different root move so they do not just repeat the main worker
+        if (helperIndex > 0) {
+            rotate(moves, count, helperIndex % count);
+        }
+
+        for (int iteration = 1; iteration <= maxDepth; iteration++) {
+            // odd helpers stay one ply ahead of the main worker
+            int depth = Math.min(maxDepth, iteration + (helperIndex & 1));
+            canAbort = iteration > 1;
+
+            int window = ASPIRATION_WINDOW;
+            int alpha = -MATE_SCORE - 1;
+            int beta = MATE_SCORE + 1;
+            if (depth >= ASPIRATION_MIN_DEPTH && Math.abs(bestScore) < MATE_BOUND) {
+                alpha = bestScore - window;
+                beta = bestScore + window;
+            }
+            int score;
+            while (true) {
+                score = searchRoot(moves, count, depth, alpha, beta, side);
+                if (aborted) break;
+                if (score <= alpha) {
+                    alpha = window > MAX_ASPIRATION_WINDOW ? -MATE_SCORE - 1 : Math.max(-MATE_SCORE - 1, score - window);
+                } else if (score >= beta) {
+                    beta = window > MAX_ASPIRATION_WINDOW ? MATE_SCORE + 1 : Math.min(MATE_SCORE + 1, score + window);
+                } else {
+                    break;
+                }
+                window *= 4;
+            }
+            if (aborted) break;
+
+            bestMove = moves[0];
+            bestScore = score;
+            completedDepth = depth;
+            principalVariation = extendLine(rootLine, rootLineLength, depth, side);
+            if (verbose) {
+                System.out.printf("depth %d: %s score %d, %d nodes, %d ms, pv %s%n",
+                        depth, Moves.toString(bestMove), bestScore, nodes, System.currentTimeMillis() - start,
+                        lineToString(principalVariation));
+            }
+            // a forced mate will not change with more depth
+            if (Math.abs(bestScore) > MATE_BOUND) break;
+        }
+    }
+
+    /**
+     * Principal variation search of the root moves: the first move gets the full window, the
+     * rest a null window that is only widened when a move beats alpha. The best move is moved
+     * to the front of moves and its line kept in rootLine.
+     * @return the best score, or a bound on it if it falls outside alpha..beta
+     */
+    private int searchRoot(int[] moves, int count, int depth, int alpha, int beta, Side side) {
+        int best = -MATE_SCORE - 1;
+        inCheckAt[0] = board.isGeneralInCheck(side);
+        for (int i = 0; i < count; i++) {
+            // play the move on the board and take it back after searching
+            int move = board.makeMove(Moves.from(moves[i]), Moves.to(moves[i]));
+            int score;
+            if (i == 0) {
+                score = -negamax(depth - 1, 1, -beta, -alpha, side.opposite(), true);
+            } else {
+                score = -negamax(depth - 1, 1, -alpha - 1, -alpha, side.opposite(), true);
+                if (score > alpha && score < beta && !aborted) {
+                    score = -negamax(depth - 1, 1, -beta, -alpha, side.opposite(), true);
+                }
+            }
+            board.unmakeMove(move);
+            if (aborted) break;
+
+            if (score > best) best = score;
+            if (score > alpha) {
+                alpha = score;
+                rootLine[0] = move;
+                System.arraycopy(pv[1], 1, rootLine, 1, pvLength[1] - 1);
+                rootLineLength = pvLength[1];
+                // search the best move first in the next iteration
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+            }
+            if (alpha >= beta) break;
+        }
+        return best;
+    }
+
+    /**
+     * The line stops short wherever a transposition table hit answered a node without searching
+     * it; carry it on with the table's best moves, as long as they are legal, up to depth moves.
+     */
+    private int[] extendLine(int[] line, int length, int depth, Side side) {
+        int[] extended = java.util.Arrays.copyOf(line, Math.max(length, depth));
+        int[] played = new int[extended.length];
+        int n = 0;
+        Side mover = side;
+        for (; n < length; n++) {
+            played[n] = board.makeMove(Moves.from(line[n]), Moves.to(line[n]));
+            mover = mover.opposite();
+        }
+        int[] moves = moveBuffers[MAX_PLY - 1];
+        while (n < extended.length) {
+            long entry = transpositionTable.probe(board.getZobristKey());
+            int hashMove = entry != 0 ? TranspositionTable.move(entry) : Moves.NONE;
+            if (hashMove == Moves.NONE) break;
+            int count = MoveGenerator.generateLegal(board, mover, moves, 0);
+            int found = Moves.NONE;
+            for (int i = 0; i < count; i++) {
+                if (Moves.squares(moves[i]) == Moves.squares(hashMove)) found = moves[i];
+            }
+            if (found == Moves.NONE) break;
+            extended[n] = found;
+            played[n] = board.makeMove(Moves.from(found), Moves.to(found));
+            mover = mover.opposite();
+            n++;
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            board.unmakeMove(played[i]);
+        }
+        return java.util.Arrays.copyOf(extended, n);
+    }
+
+    private static String lineToString(int[] line) {
+        StringBuilder sb = new StringBuilder();
+        for (int move : line) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(Moves.toString(move));
+        }
+        return sb.toString();
+    }
+
+    private static void rotate(int[] moves, int count, int by) {
+        int[] copy = java.util.Arrays.copyOf(moves, count);
+        for (int i = 0; i < count; i++) {
+            moves[i] = copy[(i + by) % count];
+        }
+    }
+
+    int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    int getBestMove() {
+        return bestMove;
+    }
+
+    int getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * Expected line of the last completed iteration, starting with the best move.
+     */
+    int[] getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    long getNodes() {
+        return nodes;
+    }
+
+    long getCutoffs() {
+        return cutoffs;
+    }
+
+    long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    /**
+     * @param allowNull false right after a null move, so two passes never follow each other
+     */
+    private int negamax(int depth, int ply, int alpha, int beta, Side side, boolean allowNull) {
+        if ((++nodes & 1023) == 0 && (stop.get() || canAbort && System.currentTimeMillis() >= deadline)) {
+            aborted = true;
+        }
+        if (aborted) return 0;
+        pvLength[ply] = ply;
+
+        // back to a position of this line or of the game: going round in circles
+        int cycle = board.repetitionDistance(1);
+        if (cycle > 0 && cycle <= ply - nullPly) {
+            return repetitionScore(cycle, ply, side);
+        }
+        if (cycle > ply && nullPly == 0) {
+            return 0;
+        }
+
+        // few pieces left: the tables know the exact answer
+        if (tablebases != null) {
+            int result = tablebases.probe(board, side);
+            if (result != Tablebases.NO_ENTRY) {
+                return tablebaseScore(result, ply);
+            }
+        }
+
+        long key = board.getZobristKey();
+        int alphaOrig = alpha;
+        long entry = transpositionTable.probe(key);
+        int hashMove = entry != 0 ? TranspositionTable.move(entry) : Moves.NONE;
+        if (entry != 0 && TranspositionTable.depth(entry) >= depth) {
+            int stored = scoreFromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT) return stored;
+            if (bound == TranspositionTable.LOWER_BOUND && stored > alpha) alpha = stored;
+            else if (bound == TranspositionTable.UPPER_BOUND && stored < beta) beta = stored;
+            if (alpha >= beta) return stored;
+        }
+
+        // the horizon: quiescence generates its own moves and finds mates when in check,
+        // so only a side stalemated here needs looking for, and that stops at the first move
+        if (ply == MAX_PLY - 1) {
+            return MoveGenerator.hasLegalMove(board, side) ? AIMove.evaluate(board, side) : mateOrStalemate(ply, side);
+        }
+        if (depth == 0) {
+            if (!board.isGeneralInCheck(side) && !MoveGenerator.hasLegalMove(board, side)) {
+                return mateOrStalemate(ply, side);
+            }
+            return quiesce(ply, alpha, beta, side);
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count = MoveGenerator.generateLegal(board, side, moves, 0);
+
+        if (count == 0) {
+            return mateOrStalemate(ply, side);
+        }
+
+        boolean inCheck = board.isGeneralInCheck(side);
+        inCheckAt[ply] = inCheck;
+        // null move: if passing still fails high, a real move would too. Passing is only a fair
+        // test while the side has pieces to do something with, so not when it is down to
+        // generals, advisors, elephants and soldiers where being forced to move can hurt.
+        if (nullMovePruning && allowNull && !inCheck && depth > NULL_MOVE_REDUCTION
+                && beta < MATE_BOUND && hasAttackingPieces(side)) {
+            int savedNullPly = nullPly;
+            nullPly = ply + 1;
+            board.switchTurn();
+            int score = -negamax(depth - 1 - NULL_MOVE_REDUCTION, ply + 1, -beta, -beta + 1, side.opposite(), false);
+            board.switchTurn();
+            nullPly = savedNullPly;
+            if (aborted) return 0;
+            if (score >= beta) return beta;
+        }
+
+        orderer.score(moves, count, ply, hashMove);
+        int max = Integer.MIN_VALUE;
+        int bestMove = Moves.NONE;
+        for (int i = 0; i < count; i++) {
+            int next = orderer.pick(moves, count, i, ply);
+            int move = board.makeMove(Moves.from(next), Moves.to(next));
+            int score;
+            if (i == 0) {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha, side.opposite(), true);
+            } else {
+                // later moves only have to be shown no better than alpha, which a null window does cheaply.
+                // Late quiet moves are rarely best: try them one ply shallower first
+                boolean reduce = lateMoveReductions && i >= LMR_FULL_DEPTH_MOVES && depth >= LMR_MIN_DEPTH && !inCheck
+                        && !Moves.isCapture(move) && !board.isGeneralInCheck(side.opposite());
+                score = -negamax(reduce ? depth - 2 : depth - 1, ply + 1, -alpha - 1, -alpha, side.opposite(), true);
+                if (reduce && score > alpha && !aborted) {
+                    score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha, side.opposite(), true);
+                }
+                // it did beat alpha: search again with the full window for its real score
+                if (score > alpha && score < beta && !aborted) {
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha, side.opposite(), true);
+                }
+            }
+            board.unmakeMove(move);
+            if (aborted) return 0;
+            if (score > max) {
+                max = score;
+                bestMove = move;
+            }
+            if (score > alpha) {
+                alpha = score;
+                pv[ply][ply] = move;
+                System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+                pvLength[ply] = pvLength[ply + 1];
+            }
+            if (alpha >= beta) { // cutoff
+                cutoffs++;
+                if (i == 0) firstMoveCutoffs++;
+                orderer.recordCutoff(move, ply, depth);
+                break;
+            }
+        }
+
+        int bound = max <= alphaOrig ? TranspositionTable.UPPER_BOUND
+                : max >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+        transpositionTable.store(key, bestMove, scoreToTable(max, ply), depth, bound);
+        return max;
+    }
+
+    /**
+     * Quiescence search: only captures are searched, until the position is quiet, so a leaf is
+     * never evaluated half way through an exchange.
+     * The side to move may stand pat on the static evaluation instead of capturing, and captures
+     * that could not bring the score up to alpha even with DELTA_MARGIN to spare are skipped
+     * (delta pruning). A side in check has no stand pat and searches every evasion.
+     */
+    private int quiesce(int ply, int alpha, int beta, Side side) {
+        if ((++nodes & 1023) == 0 && (stop.get() || canAbort && System.currentTimeMillis() >= deadline)) {
+            aborted = true;
+        }
+        if (aborted) return 0;
+        // the line ends where quiescence starts
+        pvLength[ply] = ply;
+        if (ply == MAX_PLY - 1) {
+            return AIMove.evaluate(board, side);
+        }
+
+        int[] moves = moveBuffers[ply];
+        boolean inCheck = board.isGeneralInCheck(side);
+        int standPat = 0;
+        int count;
+        if (inCheck) {
+            count = MoveGenerator.generateLegal(board, side, moves, 0);
+            if (count == 0) return mateOrStalemate(ply, side);
+        } else {
+            standPat = AIMove.evaluate(board, side);
+            if (standPat >= beta) return standPat;
+            if (standPat > alpha) alpha = standPat;
+            count = MoveGenerator.generateLegalCaptures(board, side, moves, 0);
+        }
+
+        orderer.score(moves, count, ply, Moves.NONE);
+        int max = inCheck ? -MATE_SCORE + ply : standPat;
+        for (int i = 0; i < count; i++) {
+            int next = orderer.pick(moves, count, i, ply);
+            if (!inCheck && standPat + AIMove.pieceValue(BoardEncoding.typeOf(Moves.captured(next))) + DELTA_MARGIN <= alpha) {
+                continue; // delta pruning
+            }
+            int move = board.makeMove(Moves.from(next), Moves.to(next));
+            int score = -quiesce(ply + 1, -beta, -alpha, side.opposite());
+            board.unmakeMove(move);
+            if (aborted) return 0;
+            if (score > max) max = score;
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) break;
+        }
+        return max;
+    }
+
+    private boolean hasAttackingPieces(Side side) {
+        for (PieceType type : ATTACKING_TYPES) {
+            int code = BoardEncoding.code(side, type);
+            if ((board.getPieceOccupancyLow(code) | board.getPieceOccupancyHigh(code)) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Score of a position that came up cycle plies earlier on this line: a draw, unless one
+     * side gave check with every move of the cycle and the other did not, which loses for the
+     * checker (see Core.RepetitionRules; chases are left to the game's judgement). Repetitions
+     * reaching back into the game's moves are scored as a draw.
+     */
+    private int repetitionScore(int cycle, int ply, Side side) {
+        inCheckAt[ply] = board.isGeneralInCheck(side);
+        boolean weCheck = true, theyCheck = true;
+        for (int p = ply - cycle + 1; p <= ply; p++) {
+            // our moves left the other side in check at odd distances back, theirs us at even
+            if (((ply - p) & 1) == 1) weCheck &= inCheckAt[p];
+            else theyCheck &= inCheckAt[p];
+        }
+        if (weCheck && !theyCheck) return -PERPETUAL_SCORE;
+        if (theyCheck && !weCheck) return PERPETUAL_SCORE;
+        return 0;
+    }
+
+    private int mateOrStalemate(int ply, Side side) {
+        // no legal moves: mate or stalemate, and in xiangqi both lose (see Game's *_WIN_STALE)
+        return -MATE_SCORE + ply; // losing side, later mates are less bad
+    }
+
+    /**
+     * Search score of a tablebase result at ply: a mate in so many plies from here.
+     */
+    static int tablebaseScore(int result, int ply) {
+        if (result > 0) return MATE_SCORE - (ply + result);
+        if (result < 0) return -(MATE_SCORE - (ply - result - 1));
+        return 0;
+    }
+
+    // mate scores are stored as distance from the node rather than from the root
+
+    static int scoreToTable(int score, int ply) {
+        if (score > MATE_BOUND) return score + ply;
+        if (score < -MATE_BOUND) return score - ply;
+        return score;
+    }
+
+    static int scoreFromTable(int score, int ply) {
+        if (score > MATE_BOUND) return score - ply;
+        if (score < -MATE_BOUND) return score + ply;
+        return score;
+    }
+}
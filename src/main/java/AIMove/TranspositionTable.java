@@ -0,0 +1,152 @@
+package AIMove;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size transposition table shared by the search.
+ * Each entry is two longs: the position key xor-ed with the data, and the data itself.
+ * Entries are written without locks; a torn write simply fails the key check on the
+ * next probe, so several search threads can share one table.
+ *
+ * Data layout: bits 0-21 best move (see Core.Moves), bits 22-45 score (24-bit signed),
+ * bits 46-53 depth, bits 54-55 bound type.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2; // score is at least this (fail high)
+    public static final int UPPER_BOUND = 3; // score is at most this (fail low)
+
+    private static final int ENTRY_BYTES = 16;
+
+    private final long[] table;
+    private final int mask;
+    private final int sizeMB;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    public TranspositionTable(int sizeMB) {
+        this.sizeMB = Math.max(1, sizeMB);
+        long bytes = (long) this.sizeMB * 1024 * 1024;
+        // round down to a power of two so the index is a mask
+        int entries = Integer.highestOneBit((int) Math.min(bytes / ENTRY_BYTES, 1 << 28));
+        this.table = new long[entries * 2];
+        this.mask = entries - 1;
+    }
+
+    public int getSizeMB() {
+        return sizeMB;
+    }
+
+    public int getEntryCount() {
+        return mask + 1;
+    }
+
+    /**
+     * @return the data stored for this key, or 0 if there is none
+     */
+    public long probe(long key) {
+        int index = ((int) key & mask) << 1;
+        long data = table[index + 1];
+        long check = table[index];
+        if (data == 0) {
+            misses.increment();
+            return 0;
+        }
+        if ((check ^ data) != key) {
+            collisions.increment();
+            return 0;
+        }
+        hits.increment();
+        return data;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = ((int) key & mask) << 1;
+        long old = table[index + 1];
+        // keep a deeper result for the same position, anything else is replaced
+        if (old != 0 && (table[index] ^ old) == key && depth(old) > depth && bound != EXACT) {
+            return;
+        }
+        long data = pack(move, score, depth, bound);
+        table[index + 1] = data;
+        table[index] = key ^ data;
+        stores.increment();
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(table, 0L);
+    }
+
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        collisions.reset();
+        stores.reset();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Probes that found the slot taken by a different position.
+     */
+    public long getCollisions() {
+        return collisions.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * Share of used slots in the first thousand, in per mille.
+     */
+    public int getFillPermille() {
+        int sample = Math.min(1000, mask + 1);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            if (table[(i << 1) + 1] != 0) used++;
+        }
+        return used * 1000 / sample;
+    }
+
+    @Override
+    public String toString() {
+        long probes = getHits() + getMisses() + getCollisions();
+        return String.format("TT %dMB (%d entries): %d probes, %d hits (%.1f%%), %d misses, %d collisions, %d stores, %d%% full",
+                sizeMB, getEntryCount(), probes, getHits(), probes == 0 ? 0.0 : 100.0 * getHits() / probes,
+                getMisses(), getCollisions(), getStores(), getFillPermille() / 10);
+    }
+
+    private static long pack(int move, int score, int depth, int bound) {
+        return (move & 0x3FFFFFL)
+                | ((score & 0xFFFFFFL) << 22)
+                | ((long) (depth & 0xFF) << 46)
+                | ((long) bound << 54);
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0x3FFFFF);
+    }
+
+    public static int score(long data) {
+        // shift up and back down to sign-extend the 24-bit field
+        return (int) (data << 18 >> 40);
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> 46) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> 54) & 3);
+    }
+}
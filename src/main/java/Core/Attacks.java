@@ -0,0 +1,131 @@
+package Core;
+
+import data.PieceType;
+import data.Side;
+
+/**
+ * "Is this square attacked by side X" without generating any moves.
+ * Looks outward from the square: chariot/cannon/general rays, horse legs,
+ * elephant eyes, advisors and soldiers next to it, and stops at the first attacker.
+ * For a square held by the other side the answer matches what getUnfilteredLegalMoves
+ * of the attacking pieces would allow.
+ */
+public final class Attacks {
+    private static final int[] ROOK_DR = {-1, 1, 0, 0};
+    private static final int[] ROOK_DC = {0, 0, -1, 1};
+
+    // horse sitting at target-(dr,dc) reaches the target; its leg is next to the horse
+    private static final int[] HORSE_DR = {-2, -2, 2, 2, -1, -1, 1, 1};
+    private static final int[] HORSE_DC = {-1, 1, -1, 1, -2, 2, -2, 2};
+
+    private static final int[] ELEPHANT_DR = {-2, -2, 2, 2};
+    private static final int[] ELEPHANT_DC = {-2, 2, -2, 2};
+
+    private Attacks() {
+    }
+
+    public static boolean isSquareAttacked(Board board, int sq, Side bySide) {
+        int them = BoardEncoding.sideIndex(bySide);
+        int row = BoardEncoding.rowOf(sq);
+        int col = BoardEncoding.colOf(sq);
+
+        int chariot = BoardEncoding.code(them, PieceType.CHARIOT);
+        int cannon = BoardEncoding.code(them, PieceType.CANNON);
+        int general = BoardEncoding.code(them, PieceType.GENERAL);
+        int targetCode = board.getPieceCode(sq);
+        boolean targetIsGeneral = targetCode != BoardEncoding.EMPTY
+                && BoardEncoding.typeOf(targetCode) == PieceType.GENERAL;
+
+        // chariot and cannon rays, plus the flying general along the file
+        for (int d = 0; d < 4; d++) {
+            int r = row + ROOK_DR[d];
+            int c = col + ROOK_DC[d];
+            boolean screened = false;
+            while (BoardEncoding.onBoard(r, c)) {
+                int code = board.getPieceCode(BoardEncoding.square(r, c));
+                if (code != BoardEncoding.EMPTY) {
+                    if (!screened) {
+                        if (code == chariot) return true;
+                        if (code == general && targetIsGeneral && ROOK_DC[d] == 0) return true;
+                        screened = true;
+                    } else {
+                        if (code == cannon) return true;
+                        break;
+                    }
+                }
+                r += ROOK_DR[d];
+                c += ROOK_DC[d];
+            }
+        }
+
+        // horses, blocked by the piece next to them in the long direction
+        int horse = BoardEncoding.code(them, PieceType.HORSE);
+        for (int i = 0; i < 8; i++) {
+            int hr = row - HORSE_DR[i];
+            int hc = col - HORSE_DC[i];
+            if (!BoardEncoding.onBoard(hr, hc)) continue;
+            if (board.getPieceCode(BoardEncoding.square(hr, hc)) != horse) continue;
+            int legRow = hr + HORSE_DR[i] / 2;
+            int legCol = hc + HORSE_DC[i] / 2;
+            if (board.getPieceCode(BoardEncoding.square(legRow, legCol)) == BoardEncoding.EMPTY) return true;
+        }
+
+        // soldiers: forward always, sideways once across the river
+        int soldier = BoardEncoding.code(them, PieceType.SOLDIER);
+        int behind = bySide == Side.RED ? row + 1 : row - 1;
+        if (behind >= 0 && behind < Board.ROWS && board.getPieceCode(BoardEncoding.square(behind, col)) == soldier) {
+            return true;
+        }
+        boolean acrossRiver = bySide == Side.RED ? row <= 4 : row >= 5;
+        if (acrossRiver) {
+            if (col > 0 && board.getPieceCode(sq - 1) == soldier) return true;
+            if (col < Board.COLS - 1 && board.getPieceCode(sq + 1) == soldier) return true;
+        }
+
+        // general stepping inside its own palace
+        if (inPalace(bySide, row, col)) {
+            for (int d = 0; d < 4; d++) {
+                int r = row + ROOK_DR[d];
+                int c = col + ROOK_DC[d];
+                if (BoardEncoding.onBoard(r, c) && board.getPieceCode(BoardEncoding.square(r, c)) == general) return true;
+            }
+        }
+
+        // advisors: the centre reaches every palace corner, any other advisor reaches the centre
+        int advisor = BoardEncoding.code(them, PieceType.ADVISOR);
+        int centerRow = bySide == Side.RED ? 8 : 1;
+        int center = BoardEncoding.square(centerRow, 4);
+        if (sq == center) {
+            long low = board.getPieceOccupancyLow(advisor) & ~BoardEncoding.lowBit(center);
+            long high = board.getPieceOccupancyHigh(advisor) & ~BoardEncoding.highBit(center);
+            if ((low | high) != 0) return true;
+        } else if (isPalaceCorner(row, col, centerRow) && board.getPieceCode(center) == advisor) {
+            return true;
+        }
+
+        // elephants on their own half, blocked by the eye
+        boolean ownHalf = bySide == Side.RED ? row >= 5 : row <= 4;
+        if (ownHalf) {
+            int elephant = BoardEncoding.code(them, PieceType.ELEPHANT);
+            for (int i = 0; i < 4; i++) {
+                int er = row + ELEPHANT_DR[i];
+                int ec = col + ELEPHANT_DC[i];
+                if (!BoardEncoding.onBoard(er, ec)) continue;
+                if (board.getPieceCode(BoardEncoding.square(er, ec)) != elephant) continue;
+                int eye = BoardEncoding.square(row + ELEPHANT_DR[i] / 2, col + ELEPHANT_DC[i] / 2);
+                if (board.getPieceCode(eye) == BoardEncoding.EMPTY) return true;
+            }
+        }
+
+        return false;
+    }
+
+    static boolean inPalace(Side side, int row, int col) {
+        if (col < 3 || col > 5) return false;
+        return side == Side.RED ? row >= 7 : row <= 2;
+    }
+
+    private static boolean isPalaceCorner(int row, int col, int centerRow) {
+        return (row == centerRow - 1 || row == centerRow + 1) && (col == 3 || col == 5);
+    }
+}
@@ -4,6 +4,7 @@ import GameDialogues.GameDialogue;
 import GameSave.AutoSaver;
 import GameSave.MoveRecord;
 import GameSave.ChineseChessDataSaver;
+import GameSave.GameSaveData;
 
 import chinese_chess.GraphicController;
 import data.GameStatus;
@@ -21,7 +22,32 @@ import java.util.List;
 public class Board {
     public static final int ROWS =10;
     public static final int COLS = 9;
-    private final Piece[][] grid=new Piece[ROWS][COLS];
+    // 90-cell mailbox of piece codes (see BoardEncoding) next to the Piece objects handed out to the UI
+    private final byte[] mailbox=new byte[BoardEncoding.SQUARES];
+    private final Piece[] squares=new Piece[BoardEncoding.SQUARES];
+    // occupancy bitsets, indexed by piece code and by side, squares 0..63 in the low word and 64..89 in the high word
+    private final long[] pieceLow=new long[BoardEncoding.CODES];
+    private final long[] pieceHigh=new long[BoardEncoding.CODES];
+    private final long[] sideLow=new long[2];
+    private final long[] sideHigh=new long[2];
+    private final int[] generalSquare={-1,-1};
+    // Zobrist key of the position and side to move, kept up to date by every square update and switchTurn
+    private long zobristKey=0;
+    // material and square bonuses of the position from red's side (see PieceSquareTables), kept up to date the same way
+    private int evaluation=0;
+    // pieces taken by makeMove, so unmakeMove can put the very same object back
+    private Piece[] capturedStack=new Piece[64];
+    private int capturedTop=0;
+    // legal moves and threatened squares of each side, generated once per position (Zobrist key)
+    // and shared by the UI, the game over check and move legality; a move changes the key
+    private final int[][] legalCache=new int[2][MoveGenerator.MAX_MOVES];
+    private final int[] legalCount=new int[2];
+    private final long[] legalKey=new long[2];
+    private final boolean[] legalValid=new boolean[2];
+    private final long[] threatLowCache=new long[2];
+    private final long[] threatHighCache=new long[2];
+    private final long[] threatKey=new long[2];
+    private final boolean[] threatValid=new boolean[2];
     private Position hoverPosition;
     public Position getHoverPosition(){
         return hoverPosition;
@@ -45,6 +71,15 @@ public class Board {
 
     public int currentViewingStep=0;
 
+    // FEN the game started from, null for the usual start; moveHistory is replayed from it
+    private String startFen=null;
+    // side to move at step 0, every move in moveHistory hands the turn over
+    private Side startTurn=Side.RED;
+    // captures and snapshots for stepping through moveHistory, see goToStep
+    private final HistorySnapshots history=new HistorySnapshots();
+    //keys of the positions before the current one, for repetition (see RepetitionRules)
+    private final PositionHistory positions=new PositionHistory();
+
     public final String username;
 
     private GameSoundFX soundFX = new GameSoundFX();
@@ -55,10 +90,31 @@ public class Board {
         this.username=username;
     }
 
+    /**
+     * Copy of another board's position, side to move and move history, for searching
+     * on another thread while the original stays in use. Piece objects are shared.
+     */
+    public Board(Board other){
+        this.username=other.username;
+        this.currentTurn=other.currentTurn;
+        clearAllSquares();
+        for(int sq=0; sq<BoardEncoding.SQUARES; sq++){
+            if(other.squares[sq]!=null){
+                placePiece(sq,other.mailbox[sq],other.squares[sq]);
+            }
+        }
+        this.positions.copyFrom(other.positions);
+        this.moveHistory=new java.util.ArrayList<>(other.moveHistory);
+        this.currentViewingStep=other.currentViewingStep;
+        this.startFen=other.startFen;
+        this.startTurn=other.startTurn;
+    }
+
     public Side getCurrentTurn(){
         return currentTurn;
     }
     public void switchTurn(){
+        zobristKey^=Zobrist.BLACK_TO_MOVE;
         if(currentTurn== Side.RED){
             currentTurn= Side.BLACK;
         }else{
@@ -67,18 +123,20 @@ public class Board {
     }
 
     public void initializeBoard(){
+        if(startFen!=null){
+            Fen.parse(startFen,this);
+            startTurn=currentTurn;
+            return;
+        }
         //make sure curren turn is red
         this.currentTurn=Side.RED;
+        startTurn=Side.RED;
 
         //make sure no position selected
         selectedPosition = null;
 
         //make sure all the positions are empty
-        for(int r=0; r<ROWS; r++){
-            for(int c=0; c<COLS; c++){
-                grid[r][c]=null;
-            }
-        }
+        clearAllSquares();
 
         // Place generals at their initial positions
         setPieceAt(InitialPositions.blackGeneral, new GeneralPiece(Side.BLACK));
@@ -156,36 +214,46 @@ public class Board {
 
     }
     public void loadBoardFromFile(String username, String path) throws Exception {
-        moveHistory=dataSaver.loadGameData(username,path);
-
+        GameSaveData data=dataSaver.loadGameSaveData(username,path);
+        moveHistory=data==null? null: data.moveHistory;
+        startFen=data==null? null: data.startFen;
 
         //Reinitialize the board
-        for(int r=0; r<ROWS; r++){
-            for(int c=0; c<COLS; c++){
-                grid[r][c]=null;
-            }
-        }
         initializeBoard();
+        currentViewingStep=0;
         //Replay the moves
-        try{
-
-            for(MoveRecord record: moveHistory){
-                movePiece(record.fromPosition, record.toPosition,false,true);
-                switchTurn();
-            }
-        }catch(Exception e){
-            e.printStackTrace();
-        }
-        currentViewingStep=moveHistory.size();
-        return;
+        goToStep(moveHistory.size());
     }
 
     public void saveBoard(String username,String filepath) throws Exception{
-        dataSaver.saveGameData(username,moveHistory,filepath);
+        dataSaver.saveGameData(username,moveHistory,startFen,filepath);
     }
 
     public void autoSaveBoard(String username) throws Exception{
-        autoDataSaver.autoSaveGameData(username,moveHistory);
+        autoDataSaver.autoSaveGameData(username,moveHistory,startFen);
+    }
+
+    /**
+     * Starts the game over from a FEN position (see Fen): the move history is cleared and from
+     * now on regret, viewing and saves replay the moves from this position.
+     * @param fen the position, or null for the usual start
+     * @throws IllegalArgumentException if fen is not a FEN; the board is then unchanged
+     */
+    public void setStartPosition(String fen){
+        if(fen!=null){
+            Fen.parse(fen,this); // throws before touching the board if fen is not a FEN
+        }
+        startFen=fen;
+        moveHistory=new java.util.ArrayList<>();
+        currentViewingStep=0;
+        initializeBoard();
+    }
+
+    /**
+     * FEN the moves in moveHistory start from.
+     */
+    public String getStartPosition(){
+        return startFen==null? Fen.START: startFen;
     }
 
     public Piece getPieceAt(Position position) {
@@ -194,100 +262,166 @@ public class Board {
         if(r<0||r>=ROWS||c<0||c>=COLS){
             return null;
         }
-        return grid[r][c];
+        return squares[BoardEncoding.square(r,c)];
+    }
+
+    public Piece getPieceAt(int square){
+        return squares[square];
+    }
+
+    /**
+     * Piece code on a square, 0 when empty. See BoardEncoding for the layout.
+     */
+    public int getPieceCode(int square){
+        return mailbox[square];
+    }
+
+    /**
+     * Square of the general of the given side, or -1 if it is not on the board.
+     */
+    public int getGeneralSquare(Side side){
+        return generalSquare[BoardEncoding.sideIndex(side)];
+    }
+
+    public long getOccupancyLow(Side side){
+        return sideLow[BoardEncoding.sideIndex(side)];
+    }
+
+    public long getOccupancyHigh(Side side){
+        return sideHigh[BoardEncoding.sideIndex(side)];
+    }
+
+    public long getPieceOccupancyLow(int code){
+        return pieceLow[code];
+    }
+
+    public long getPieceOccupancyHigh(int code){
+        return pieceHigh[code];
+    }
+
+    /**
+     * Zobrist key of the current position including the side to move.
+     */
+    public long getZobristKey(){
+        return zobristKey;
+    }
+
+    /**
+     * Static evaluation of the position from the given side's point of view:
+     * material plus piece-square bonuses, kept up to date incrementally.
+     */
+    public int getEvaluation(Side side){
+        return side==Side.RED? evaluation: -evaluation;
     }
 
     public Position getGeneralPosition(Side side){
-        for(int r=0; r<ROWS; r++){
-            for(int c=0; c<COLS; c++){
-                Piece piece=grid[r][c];
-                if(piece!=null && piece.pieceType==data.PieceType.GENERAL && piece.side==side){
-                    return new Position(r,c);
-                }
-            }
-        }
-        return null;
+        int sq=generalSquare[BoardEncoding.sideIndex(side)];
+        return sq<0? null: BoardEncoding.toPosition(sq);
     }
 
     public List<Position> getThreatenedPositions(Side side){
-        List<Position> threatenedPositions=new java.util.ArrayList<>();
-        for(int r=0; r<ROWS; r++){
-            for(int c=0; c<COLS; c++){
-                Piece piece=grid[r][c];
-                if(piece!=null && piece.side!=side){
-                    Position piecePosition=new Position(r,c);
-                    // Use unfiltered moves here to determine threats so we don't recurse through getLegalMoves
-                    List<Position> pieceMoves=piece.getUnfilteredLegalMoves(this,piecePosition);
-                    if(pieceMoves!=null){
-                        threatenedPositions.addAll(pieceMoves);
-                    }
-                }
+        int s=BoardEncoding.sideIndex(side);
+        if(!threatValid[s]||threatKey[s]!=zobristKey){
+            // Use unfiltered moves here to determine threats so we don't recurse through the legality filter
+            int[] moves=new int[MoveGenerator.MAX_MOVES];
+            int count=MoveGenerator.generate(this,side.opposite(),moves,0);
+
+            // collect the targets into a 90-bit set so duplicates vanish without a nested scan
+            long low=0, high=0;
+            for(int i=0;i<count;i++){
+                int target=Moves.to(moves[i]);
+                low|=BoardEncoding.lowBit(target);
+                high|=BoardEncoding.highBit(target);
             }
+            threatLowCache[s]=low;
+            threatHighCache[s]=high;
+            threatKey[s]=zobristKey;
+            threatValid[s]=true;
         }
+        long threatLow=threatLowCache[s], threatHigh=threatHighCache[s];
 
-        //remove duplicates in threatenedPositions
-        List<Position> uniqueThreatenedPositions=new java.util.ArrayList<>();
-        for(Position pos: threatenedPositions){
-            boolean isDuplicate=false;
-            for(Position uniquePos: uniqueThreatenedPositions){
-                if(pos.equals(uniquePos)){
-                    isDuplicate=true;
-                    break;
-                }
-            }
-            if(!isDuplicate){
-                uniqueThreatenedPositions.add(pos);
-            }
+        List<Position> uniqueThreatenedPositions=new java.util.ArrayList<>(Long.bitCount(threatLow)+Long.bitCount(threatHigh));
+        while(threatLow!=0){
+            uniqueThreatenedPositions.add(BoardEncoding.toPosition(Long.numberOfTrailingZeros(threatLow)));
+            threatLow&=threatLow-1;
+        }
+        while(threatHigh!=0){
+            uniqueThreatenedPositions.add(BoardEncoding.toPosition(64+Long.numberOfTrailingZeros(threatHigh)));
+            threatHigh&=threatHigh-1;
         }
         return uniqueThreatenedPositions;
     }
 
     public List<Position> getAllLegalMoves(Side side) throws Exception {
-        List<Position> allLegalMoves=new java.util.ArrayList<>();
-        for(int r=0; r<ROWS; r++){
-            for(int c=0; c<COLS; c++){
-                Piece piece=grid[r][c];
-                if(piece!=null && piece.side==side){
-                    Position piecePosition=new Position(r,c);
-                    List<Position> pieceLegalMoves=piece.getLegalMoves(this,piecePosition);
-                    if(pieceLegalMoves!=null){
-                        allLegalMoves.addAll(pieceLegalMoves);
-                    }
-                }
+        int count=cachedLegalMoves(side);
+        if(count==0){
+            return null;
+        }
+        return MoveGenerator.targets(legalCache[BoardEncoding.sideIndex(side)],0,count);
+    }
+
+    /**
+     * Legal moves of the piece on the square, from the side's cached moves.
+     */
+    public List<Position> getLegalMoves(Position from){
+        int sq=BoardEncoding.square(from);
+        int code=mailbox[sq];
+        if(code==BoardEncoding.EMPTY){
+            return new java.util.ArrayList<>();
+        }
+        Side side=BoardEncoding.sideOf(code);
+        int count=cachedLegalMoves(side);
+        int[] moves=legalCache[BoardEncoding.sideIndex(side)];
+        List<Position> targets=new java.util.ArrayList<>();
+        for(int i=0;i<count;i++){
+            if(Moves.from(moves[i])==sq){
+                targets.add(BoardEncoding.toPosition(Moves.to(moves[i])));
             }
         }
-        if(allLegalMoves.size()==0){
-            return null;
+        return targets;
+    }
+
+    // generates the side's legal moves into legalCache unless they are there for this position already
+    private int cachedLegalMoves(Side side){
+        int s=BoardEncoding.sideIndex(side);
+        if(!legalValid[s]||legalKey[s]!=zobristKey){
+            legalCount[s]=MoveGenerator.generateLegal(this,side,legalCache[s],0);
+            legalKey[s]=zobristKey;
+            legalValid[s]=true;
         }
-        return allLegalMoves;
+        return legalCount[s];
     }
 
 
     public boolean isGeneralInCheck(Side side){
-        Position generalPosition=getGeneralPosition(side);
-        List<Position> threatenedPositions=getThreatenedPositions(side);
-        for(Position pos: threatenedPositions){
-            if(pos.equals(generalPosition)){
-                return true;
-            }
-        }
-        return false;
+        int generalSq=generalSquare[BoardEncoding.sideIndex(side)];
+        if(generalSq<0) return false;
+        return Attacks.isSquareAttacked(this,generalSq,side.opposite());
+    }
+
+    /**
+     * Whether a piece of bySide could capture on the square, looking outward from it and stopping at the first attacker.
+     * Capture rules apply even to an empty square, so a cannon needs a screen to attack it.
+     */
+    public boolean isSquareAttacked(Position position, Side bySide){
+        return Attacks.isSquareAttacked(this,BoardEncoding.square(position),bySide);
     }
 
     // move piece and regret move
 
     public void movePiece(Position fromPosition, Position toPosition, boolean formal, boolean isGuest) throws Exception {
-        int fromRow=fromPosition.getRow();
-        int fromCol=fromPosition.getCol();
-        if (grid[fromRow][fromCol]==null){
+        if (getPieceAt(fromPosition)==null){
             System.out.println("No piece at the source position!");
             return;
         }
         Piece piece = getPieceAt(fromPosition);
+        int captured=mailbox[BoardEncoding.square(toPosition)];
+        long key=zobristKey;
         setPieceAt(toPosition, piece);
         setPieceAt(fromPosition, null);
 
         if(formal){
+            recordCapture(captured,key);
             MoveRecord record=new MoveRecord(fromPosition, toPosition);
             this.moveHistory.add(record);
             //this.saveBoard("chinese_chess_save.dat");
@@ -305,6 +439,7 @@ public class Board {
 
     public void forceMovePiece(Position fromPosition, Position toPosition){
         Piece piece = getPieceAt(fromPosition);
+        recordCapture(mailbox[BoardEncoding.square(toPosition)],zobristKey);
         setPieceAt(toPosition, piece);
         setPieceAt(fromPosition, null);
         MoveRecord record=new MoveRecord(fromPosition, toPosition);
@@ -316,26 +451,10 @@ public class Board {
             System.out.println("No moves to regret!");
             return;
         }
-        //MoveRecord lastMove=moveHistory.get(moveHistory.size()-1);
-
+        //Take the last move back on the board, then out of the history
+        goToStep(moveHistory.size()-1);
         moveHistory.remove(moveHistory.size()-1);
-        //Move the piece back
-        //movePiece(lastMove.toPosition, lastMove.fromPosition,false);
-        //Switch turn back
-        //switchTurn();
-        //Save the board
-
-        initializeBoard();
-        //Replay the moves
-        try{
-            for(MoveRecord record: moveHistory){
-                movePiece(record.fromPosition, record.toPosition,false,isGuest);
-                switchTurn();
-            }
-        }
-        catch(Exception e){
-            e.printStackTrace();
-        }
+        history.truncate(moveHistory.size());
 
         currentViewingStep=moveHistory.size();
 
@@ -352,22 +471,7 @@ public class Board {
             System.out.println("Already at the beginning of the game!");
             return;
         }
-        currentViewingStep--;
-
-        initializeBoard();
-        //Replay the moves
-        try{
-            for(int i=0;i<currentViewingStep;i++){
-                MoveRecord record=moveHistory.get(i);
-                movePiece(record.fromPosition, record.toPosition,false, true);
-                switchTurn();
-            }
-        }
-        catch(Exception e){
-            e.printStackTrace();
-        }
-
-
+        goToStep(currentViewingStep-1);
     }
 
     public void viewNextMove(){
@@ -375,21 +479,7 @@ public class Board {
             System.out.println("Already at the latest move!");
             return;
         }
-        currentViewingStep++;
-
-        initializeBoard();
-        //Replay the moves
-        try{
-            for(int i=0;i<currentViewingStep;i++){
-                MoveRecord record=moveHistory.get(i);
-                movePiece(record.fromPosition, record.toPosition,false, true);
-                switchTurn();
-            }
-        }
-        catch(Exception e){
-            e.printStackTrace();
-        }
-
+        goToStep(currentViewingStep+1);
     }
 
     public void returnToLatestMove(){
@@ -397,21 +487,7 @@ public class Board {
             System.out.println("Already at the latest move!");
             return;
         }
-        currentViewingStep=moveHistory.size();
-
-        initializeBoard();
-        //Replay the moves
-        try{
-            for(int i=0;i<currentViewingStep;i++){
-                MoveRecord record=moveHistory.get(i);
-                movePiece(record.fromPosition, record.toPosition,false, true);
-                switchTurn();
-            }
-        }
-        catch(Exception e){
-            e.printStackTrace();
-        }
-
+        goToStep(moveHistory.size());
     }
 
     public void returnViewToInitial(){
@@ -419,10 +495,108 @@ public class Board {
             System.out.println("Already initial");
             return;
         }
+        goToStep(0);
+    }
+
+    /**
+     * Shows the position after the first step moves of moveHistory, starting from the one
+     * shown now: moves are played forward or taken back one at a time, or, when it is closer,
+     * the board jumps to the nearest snapshot before step (see HistorySnapshots) and plays on
+     * from there. So any step is at most HistorySnapshots.INTERVAL-1 moves away.
+     */
+    private void goToStep(int step){
+        history.attach(moveHistory);
+        deselect();
+        int current=currentViewingStep;
+        int snapshotPly=history.snapshotBefore(step);
+        int forward=step>=current? step-current: Integer.MAX_VALUE;
+        // captures are known for a prefix of the history, so knowing the last one is enough
+        int back=step<current&&history.knowsCapture(current-1)? current-step: Integer.MAX_VALUE;
+        int fromSnapshot=step-snapshotPly;
+        if(back<fromSnapshot&&back<forward){
+            for(int ply=current-1;ply>=step;ply--){
+                undoHistoryMove(ply);
+            }
+        }else{
+            if(forward>fromSnapshot){
+                restoreSnapshot(snapshotPly);
+                current=snapshotPly;
+            }
+            for(int ply=current;ply<step;ply++){
+                applyHistoryMove(ply);
+            }
+        }
+        currentViewingStep=step;
+        // moves made in 摆棋 mode keep the turn, a replay hands it over on every move
+        if(currentTurn!=turnAtStep(step)){
+            switchTurn();
+        }
+    }
 
-        currentViewingStep=0;
+    private Side turnAtStep(int step){
+        return step%2==0? startTurn: startTurn.opposite();
+    }
 
-        initializeBoard();
+    // notes what a formal move captures and the position it leaves, when it is played at the end of the history
+    private void recordCapture(int code, long key){
+        history.attach(moveHistory);
+        if(currentViewingStep==moveHistory.size()){
+            history.recordCapture(moveHistory.size(),code,key);
+            positions.push(key);
+        }
+    }
+
+    private void applyHistoryMove(int ply){
+        MoveRecord record=moveHistory.get(ply);
+        int from=BoardEncoding.square(record.fromPosition);
+        int to=BoardEncoding.square(record.toPosition);
+        positions.push(zobristKey);
+        if(squares[from]==null){
+            System.out.println("No piece at the source position!");
+        }else{
+            int moving=mailbox[from];
+            Piece piece=squares[from];
+            history.recordCapture(ply,mailbox[to],zobristKey);
+            clearSquare(to);
+            clearSquare(from);
+            placePiece(to,moving,piece);
+        }
+        switchTurn();
+        history.offerSnapshot(ply+1,mailbox,BoardEncoding.sideIndex(turnAtStep(ply+1)));
+    }
+
+    private void undoHistoryMove(int ply){
+        MoveRecord record=moveHistory.get(ply);
+        int from=BoardEncoding.square(record.fromPosition);
+        int to=BoardEncoding.square(record.toPosition);
+        int moving=mailbox[to];
+        Piece piece=squares[to];
+        clearSquare(to);
+        placePiece(from,moving,piece);
+        int captured=history.capturedAt(ply);
+        if(captured!=BoardEncoding.EMPTY){
+            placePiece(to,captured,Piece.create(BoardEncoding.sideOf(captured),BoardEncoding.typeOf(captured)));
+        }
+        switchTurn();
+        positions.pop();
+    }
+
+    private void restoreSnapshot(int ply){
+        if(ply==0){
+            initializeBoard();
+            return;
+        }
+        byte[] snapshot=history.snapshot(ply);
+        clearBoard(BoardEncoding.sideOfIndex(snapshot[BoardEncoding.SQUARES]));
+        for(int sq=0;sq<BoardEncoding.SQUARES;sq++){
+            int code=snapshot[sq];
+            if(code!=BoardEncoding.EMPTY){
+                placePiece(sq,code,Piece.create(BoardEncoding.sideOf(code),BoardEncoding.typeOf(code)));
+            }
+        }
+        for(int i=0;i<ply;i++){
+            positions.push(history.keyAt(i));
+        }
     }
 
     public int getCurrentViewingStep(){
@@ -444,8 +618,20 @@ public class Board {
 
     //win lose judgement
 
+    /**
+     * Whether the side can move at all. Uses the side's cached legal moves when this position
+     * has them, otherwise stops at the first legal move found (see MoveGenerator.hasLegalMove).
+     */
+    public boolean hasAnyLegalMove(Side side){
+        int s=BoardEncoding.sideIndex(side);
+        if(legalValid[s]&&legalKey[s]==zobristKey){
+            return legalCount[s]>0;
+        }
+        return MoveGenerator.hasLegalMove(this,side);
+    }
+
     public int judgeGameOver() throws Exception {
-        if(getAllLegalMoves(currentTurn)==null){
+        if(!hasAnyLegalMove(currentTurn)){
             if(isGeneralInCheck(currentTurn)){
                 //Current player is checkmated
                 return currentTurn== Side.RED? 2:1; //1 for Red wins, 2 for Black wins
@@ -455,13 +641,138 @@ public class Board {
                 return currentTurn== Side.RED? 4:3;
             }
         }
+        //Repeated position: a draw, unless one side got there by perpetual check or chase
+        int repetition=RepetitionRules.judge(this);
+        if(repetition==RepetitionRules.DRAW) return 5;
+        if(repetition==RepetitionRules.BLACK_LOSES) return 6; //6 for Red wins, 7 for Black wins
+        if(repetition==RepetitionRules.RED_LOSES) return 7;
         return -1; //-1 for game not over
     }
 
+    /**
+     * How many times the current position came up before, in the game so far and the line
+     * being searched. Only the same side to move counts as the same position.
+     */
+    public int repetitions(){
+        return positions.count(zobristKey);
+    }
+
+    /**
+     * How many plies back the nth latest earlier occurrence of the current position is
+     * (1 for the latest), 0 if there is none. O(1) when the position is new.
+     */
+    public int repetitionDistance(int nth){
+        return positions.distanceBack(zobristKey,nth);
+    }
+
+    /**
+     * Empties the board and gives the move to sideToMove, for setting up a position piece by piece.
+     * The move history is left alone.
+     */
+    public void clearBoard(Side sideToMove){
+        this.currentTurn=sideToMove;
+        selectedPosition=null;
+        capturedTop=0;
+        clearAllSquares();
+    }
+
     public void setPieceAt(Position position, Piece piece) {
-        int r=position.getRow();
-        int c=position.getCol();
-        grid[r][c] = piece;
+        int sq=BoardEncoding.square(position);
+        clearSquare(sq);
+        if(piece!=null){
+            placePiece(sq,BoardEncoding.code(piece.side,piece.pieceType),piece);
+        }
+    }
+
+    // reversible moves for the search and the legality filter
+
+    /**
+     * Plays a move from one square to another and hands the turn to the other side.
+     * Nothing is recorded in moveHistory and no sound is played.
+     * @return the packed move (see Moves), to be passed back to unmakeMove
+     */
+    public int makeMove(int from, int to){
+        positions.push(zobristKey);
+        int moving=mailbox[from];
+        int captured=mailbox[to];
+        Piece movingPiece=squares[from];
+        if(capturedTop==capturedStack.length){
+            capturedStack=java.util.Arrays.copyOf(capturedStack,capturedTop*2);
+        }
+        capturedStack[capturedTop++]=squares[to];
+        clearSquare(to);
+        clearSquare(from);
+        placePiece(to,moving,movingPiece);
+        switchTurn();
+        return Moves.pack(from,to,moving,captured);
+    }
+
+    /**
+     * Takes back the latest move made with makeMove.
+     */
+    public void unmakeMove(int move){
+        int from=Moves.from(move);
+        int to=Moves.to(move);
+        Piece movingPiece=squares[to];
+        Piece capturedPiece=capturedStack[--capturedTop];
+        capturedStack[capturedTop]=null;
+        switchTurn();
+        clearSquare(to);
+        placePiece(from,Moves.moving(move),movingPiece);
+        if(capturedPiece!=null){
+            placePiece(to,Moves.captured(move),capturedPiece);
+        }
+        positions.pop();
+    }
+
+    // low level square updates, every change to the position goes through these two
+
+    private void placePiece(int sq, int code, Piece piece){
+        int side=BoardEncoding.sideIndexOf(code);
+        long low=BoardEncoding.lowBit(sq), high=BoardEncoding.highBit(sq);
+        mailbox[sq]=(byte)code;
+        squares[sq]=piece;
+        zobristKey^=Zobrist.pieceSquare(code,sq);
+        evaluation+=PieceSquareTables.value(code,sq);
+        pieceLow[code]|=low;
+        pieceHigh[code]|=high;
+        sideLow[side]|=low;
+        sideHigh[side]|=high;
+        if(BoardEncoding.typeOf(code)==data.PieceType.GENERAL){
+            generalSquare[side]=sq;
+        }
+    }
+
+    private void clearSquare(int sq){
+        int code=mailbox[sq];
+        if(code==BoardEncoding.EMPTY) return;
+        int side=BoardEncoding.sideIndexOf(code);
+        long low=~BoardEncoding.lowBit(sq), high=~BoardEncoding.highBit(sq);
+        mailbox[sq]=BoardEncoding.EMPTY;
+        squares[sq]=null;
+        zobristKey^=Zobrist.pieceSquare(code,sq);
+        evaluation-=PieceSquareTables.value(code,sq);
+        pieceLow[code]&=low;
+        pieceHigh[code]&=high;
+        sideLow[side]&=low;
+        sideHigh[side]&=high;
+        if(generalSquare[side]==sq){
+            generalSquare[side]=-1;
+        }
+    }
+
+    private void clearAllSquares(){
+        java.util.Arrays.fill(mailbox,(byte)BoardEncoding.EMPTY);
+        java.util.Arrays.fill(squares,null);
+        java.util.Arrays.fill(pieceLow,0L);
+        java.util.Arrays.fill(pieceHigh,0L);
+        java.util.Arrays.fill(sideLow,0L);
+        java.util.Arrays.fill(sideHigh,0L);
+        generalSquare[0]=-1;
+        generalSquare[1]=-1;
+        zobristKey=currentTurn==Side.BLACK? Zobrist.BLACK_TO_MOVE: 0;
+        evaluation=0;
+        positions.clear();
     }
 
     public void select(Position position) {
@@ -496,10 +807,11 @@ public class Board {
     public void printBoard(){
         for(int r=0; r<ROWS; r++){
             for(int c=0; c<COLS; c++){
-                if(grid[r][c]==null){
+                Piece piece=squares[BoardEncoding.square(r,c)];
+                if(piece==null){
                     System.out.print(". ");
                 }else{
-                    System.out.print(grid[r][c].pieceType.toString().charAt(0)+" ");
+                    System.out.print(piece.pieceType.toString().charAt(0)+" ");
                 }
             }
             System.out.println();
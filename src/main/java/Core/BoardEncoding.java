@@ -0,0 +1,115 @@
+package Core;
+
+import data.PieceType;
+import data.Position;
+import data.Side;
+
+/**
+ * Compact encoding used by the board engine.
+ * Squares are numbered row*9+col (0..89). A piece is stored as a small code:
+ * 0 is empty, 1..7 are red pieces and 9..15 are black pieces, the low three bits
+ * being PieceType.ordinal()+1. A set of squares is kept in two longs, squares 0..63
+ * in the low word and 64..89 in the high word.
+ */
+public final class BoardEncoding {
+    public static final int SQUARES = Board.ROWS * Board.COLS;
+    public static final int EMPTY = 0;
+    public static final int BLACK_FLAG = 8;
+    public static final int CODES = 16;
+
+    private static final PieceType[] TYPES = PieceType.values();
+    private static final int[] ROW_OF = new int[SQUARES];
+    private static final int[] COL_OF = new int[SQUARES];
+    private static final Position[] POSITIONS = new Position[SQUARES];
+
+    static {
+        for (int sq = 0; sq < SQUARES; sq++) {
+            ROW_OF[sq] = sq / Board.COLS;
+            COL_OF[sq] = sq % Board.COLS;
+            POSITIONS[sq] = new Position(ROW_OF[sq], COL_OF[sq]);
+        }
+    }
+
+    private BoardEncoding() {
+    }
+
+    public static int square(int row, int col) {
+        return row * Board.COLS + col;
+    }
+
+    public static int square(Position position) {
+        return position.getRow() * Board.COLS + position.getCol();
+    }
+
+    public static int rowOf(int sq) {
+        return ROW_OF[sq];
+    }
+
+    public static int colOf(int sq) {
+        return COL_OF[sq];
+    }
+
+    /**
+     * Fresh Position for a square, so callers are free to mutate it.
+     */
+    public static Position toPosition(int sq) {
+        return new Position(ROW_OF[sq], COL_OF[sq]);
+    }
+
+    /**
+     * Shared, read-only Position for a square. Do not mutate the returned object.
+     */
+    public static Position positionOf(int sq) {
+        return POSITIONS[sq];
+    }
+
+    public static boolean onBoard(int row, int col) {
+        return row >= 0 && row < Board.ROWS && col >= 0 && col < Board.COLS;
+    }
+
+    public static int code(Side side, PieceType type) {
+        return (side == Side.BLACK ? BLACK_FLAG : 0) | (type.ordinal() + 1);
+    }
+
+    public static int code(int sideIndex, PieceType type) {
+        return (sideIndex << 3) | (type.ordinal() + 1);
+    }
+
+    public static int sideIndex(Side side) {
+        return side == Side.RED ? 0 : 1;
+    }
+
+    /**
+     * 0 for red, 1 for black. Only meaningful for non-empty codes.
+     */
+    public static int sideIndexOf(int code) {
+        return code >>> 3;
+    }
+
+    public static Side sideOf(int code) {
+        return (code & BLACK_FLAG) == 0 ? Side.RED : Side.BLACK;
+    }
+
+    public static Side sideOfIndex(int sideIndex) {
+        return sideIndex == 0 ? Side.RED : Side.BLACK;
+    }
+
+    public static PieceType typeOf(int code) {
+        return TYPES[(code & 7) - 1];
+    }
+
+    /**
+     * PieceType ordinal of a non-empty code.
+     */
+    public static int typeIndexOf(int code) {
+        return (code & 7) - 1;
+    }
+
+    public static long lowBit(int sq) {
+        return sq < 64 ? 1L << sq : 0L;
+    }
+
+    public static long highBit(int sq) {
+        return sq >= 64 ? 1L << (sq - 64) : 0L;
+    }
+}
@@ -0,0 +1,194 @@
+package Core;
+
+import data.PieceType;
+import data.Side;
+import pieces.Piece;
+
+/**
+ * Xiangqi FEN: the piece placement rank by rank from black's back rank (row 0) down to red's,
+ * then the side to move, e.g. the start position
+ * "rnbakabnr/9/1c5c1/p1p1p1p1p/9/9/P1P1P1P1P/1C5C1/9/RNBAKABNR w - - 0 1".
+ * Letters are K general, A advisor, B elephant, N horse, R chariot, C cannon, P soldier,
+ * upper case for red; E and H are read as elephant and horse too. A digit is that many empty
+ * squares. The side to move is "w" or "r" for red, "b" for black, and red if left out.
+ * The fields after it (no castling or en passant in xiangqi, move counters) are ignored.
+ * A side may have at most the pieces it starts with, and generals, advisors, elephants and
+ * soldiers only on squares they can reach, so the move generator's buffers always suffice.
+ *
+ * parse checks the whole text before touching the board and allocates nothing except the
+ * Piece objects the board holds, so harnesses can load positions in a loop.
+ */
+public final class Fen {
+    public static final String START = "rnbakabnr/9/1c5c1/p1p1p1p1p/9/9/P1P1P1P1P/1C5C1/9/RNBAKABNR w - - 0 1";
+
+    // piece letters by PieceType ordinal, as written
+    private static final String LETTERS = "KABRNCP";
+    private static final PieceType[] TYPES = PieceType.values();
+    // most pieces of each type a side can have, by PieceType ordinal
+    private static final int[] LIMITS = {1, 2, 2, 2, 2, 2, 5};
+
+    private Fen() {
+    }
+
+    /**
+     * Sets the board to the position, see Board.clearBoard; the move history is left alone.
+     * @throws IllegalArgumentException if the text is not a FEN; the board is then unchanged
+     */
+    public static void parse(CharSequence fen, Board board) {
+        int end = check(fen);
+        Side side = sideToMove(fen, end);
+        board.clearBoard(side);
+        int row = 0, col = 0;
+        for (int i = 0; i < end; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                row++;
+                col = 0;
+            } else if (c >= '1' && c <= '9') {
+                col += c - '0';
+            } else {
+                int code = code(c);
+                board.setPieceAt(BoardEncoding.positionOf(BoardEncoding.square(row, col)),
+                        Piece.create(BoardEncoding.sideOf(code), BoardEncoding.typeOf(code)));
+                col++;
+            }
+        }
+    }
+
+    /**
+     * Whether parse would accept the text.
+     */
+    public static boolean isValid(CharSequence fen) {
+        try {
+            check(fen);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * FEN of the board's position and side to move.
+     */
+    public static String toFen(Board board) {
+        return appendTo(new StringBuilder(96), board).toString();
+    }
+
+    public static StringBuilder appendTo(StringBuilder sb, Board board) {
+        for (int row = 0; row < Board.ROWS; row++) {
+            if (row > 0) sb.append('/');
+            int empty = 0;
+            for (int col = 0; col < Board.COLS; col++) {
+                int code = board.getPieceCode(BoardEncoding.square(row, col));
+                if (code == BoardEncoding.EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                char letter = LETTERS.charAt(BoardEncoding.typeIndexOf(code));
+                sb.append(BoardEncoding.sideOf(code) == Side.RED ? letter : Character.toLowerCase(letter));
+            }
+            if (empty > 0) sb.append((char) ('0' + empty));
+        }
+        return sb.append(board.getCurrentTurn() == Side.RED ? " w" : " b").append(" - - 0 1");
+    }
+
+    // validates the placement and the side to move, returns where the placement ends
+    private static int check(CharSequence fen) {
+        if (fen == null) {
+            throw new IllegalArgumentException("FEN is null");
+        }
+        int row = 0, col = 0, i = 0;
+        int[][] counts = new int[2][TYPES.length];
+        for (; i < fen.length(); i++) {
+            char c = fen.charAt(i);
+            if (c == ' ') break;
+            if (c == '/') {
+                if (col != Board.COLS) {
+                    throw new IllegalArgumentException("FEN rank " + (row + 1) + " has " + col + " files, not " + Board.COLS);
+                }
+                row++;
+                col = 0;
+                if (row >= Board.ROWS) {
+                    throw new IllegalArgumentException("FEN has more than " + Board.ROWS + " ranks");
+                }
+            } else if (c >= '1' && c <= '9') {
+                col += c - '0';
+            } else {
+                int code = code(c);
+                if (code == BoardEncoding.EMPTY) {
+                    throw new IllegalArgumentException("FEN has an unknown piece letter '" + c + "'");
+                }
+                if (col >= Board.COLS) {
+                    throw new IllegalArgumentException("FEN rank " + (row + 1) + " has more than " + Board.COLS + " files");
+                }
+                PieceType type = BoardEncoding.typeOf(code);
+                Side side = BoardEncoding.sideOf(code);
+                if (!canStand(side, type, row, col)) {
+                    throw new IllegalArgumentException("FEN has a " + name(side, type) + " on rank " + (row + 1) + " file " + (col + 1) + ", where it cannot stand");
+                }
+                if (++counts[BoardEncoding.sideIndex(side)][type.ordinal()] > LIMITS[type.ordinal()]) {
+                    throw new IllegalArgumentException("FEN has more than " + LIMITS[type.ordinal()] + " of the " + name(side, type) + "s");
+                }
+                col++;
+            }
+            if (col > Board.COLS) {
+                throw new IllegalArgumentException("FEN rank " + (row + 1) + " has more than " + Board.COLS + " files");
+            }
+        }
+        if (row != Board.ROWS - 1 || col != Board.COLS) {
+            throw new IllegalArgumentException("FEN placement does not cover " + Board.ROWS + " ranks of " + Board.COLS + " files");
+        }
+        sideToMove(fen, i);
+        return i;
+    }
+
+    // whether the piece can ever be on the square: generals and advisors keep to the palace,
+    // elephants to their own half, soldiers never step back
+    private static boolean canStand(Side side, PieceType type, int row, int col) {
+        // rows counted from the side's own back rank
+        int r = side == Side.RED ? Board.ROWS - 1 - row : row;
+        switch (type) {
+            case GENERAL:
+                return Attacks.inPalace(side, row, col);
+            case ADVISOR:
+                return Attacks.inPalace(side, row, col) && (r + col) % 2 == 1;
+            case ELEPHANT:
+                return r % 2 == 0 && col % 2 == 0 && r <= 4 && (r / 2 + col / 2) % 2 == 1;
+            case SOLDIER:
+                return r >= 5 || r >= 3 && col % 2 == 0;
+            default:
+                return true;
+        }
+    }
+
+    private static String name(Side side, PieceType type) {
+        return (side == Side.RED ? "red " : "black ") + type.name().toLowerCase();
+    }
+
+    private static Side sideToMove(CharSequence fen, int end) {
+        int i = end;
+        while (i < fen.length() && fen.charAt(i) == ' ') i++;
+        if (i == fen.length()) return Side.RED;
+        char c = fen.charAt(i);
+        if (i + 1 < fen.length() && fen.charAt(i + 1) != ' ') {
+            throw new IllegalArgumentException("FEN side to move must be w, r or b");
+        }
+        if (c == 'w' || c == 'r') return Side.RED;
+        if (c == 'b') return Side.BLACK;
+        throw new IllegalArgumentException("FEN side to move must be w, r or b");
+    }
+
+    // piece code for a letter, EMPTY if it is not one
+    private static int code(char c) {
+        Side side = Character.isUpperCase(c) ? Side.RED : Side.BLACK;
+        char upper = Character.toUpperCase(c);
+        if (upper == 'E') upper = 'B';
+        else if (upper == 'H') upper = 'N';
+        int type = LETTERS.indexOf(upper);
+        return type < 0 ? BoardEncoding.EMPTY : BoardEncoding.code(side, TYPES[type]);
+    }
+}
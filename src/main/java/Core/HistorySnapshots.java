@@ -0,0 +1,105 @@
+package Core;
+
+import GameSave.MoveRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What Board needs to step through its move history without replaying it from the start:
+ * the piece each move captured, so a move can be taken back, the key of the position each
+ * move was played from, for Board's PositionHistory, and every INTERVAL plies a snapshot of
+ * the position, so a jump needs at most INTERVAL - 1 moves from the nearest one.
+ * Both are filled in as moves are played, and only ever cover a prefix of the history.
+ */
+final class HistorySnapshots {
+    static final int INTERVAL = 16;
+
+    // the history these belong to; a different list means they are stale
+    private List<MoveRecord> history;
+    // code captured by each move (EMPTY for none), known for the first capturesKnown moves
+    private byte[] captured = new byte[256];
+    private int capturesKnown = 0;
+    // Zobrist key before each move, known as far as the captures are
+    private long[] keys = new long[256];
+    // position after every INTERVAL plies: snapshots.get(j) is ply (j+1)*INTERVAL,
+    // mailbox codes followed by the side to move (0 red, 1 black)
+    private final List<byte[]> snapshots = new ArrayList<>();
+
+    /**
+     * Forgets everything unless it was recorded for this very list.
+     */
+    void attach(List<MoveRecord> history) {
+        if (this.history != history) {
+            this.history = history;
+            capturesKnown = 0;
+            snapshots.clear();
+        }
+        if (history != null && capturesKnown > history.size()) {
+            truncate(history.size());
+        }
+    }
+
+    /**
+     * Drops what is known about moves from ply on, after the history was cut back to ply moves.
+     */
+    void truncate(int ply) {
+        capturesKnown = Math.min(capturesKnown, ply);
+        while (!snapshots.isEmpty() && snapshots.size() * INTERVAL > ply) {
+            snapshots.remove(snapshots.size() - 1);
+        }
+    }
+
+    /**
+     * Records what the move at ply captured and the key of the position it was played from.
+     * Moves are recorded in order, so this only extends what is known when ply is the next
+     * unknown move.
+     */
+    void recordCapture(int ply, int code, long key) {
+        if (ply != capturesKnown) return;
+        if (ply == captured.length) {
+            captured = java.util.Arrays.copyOf(captured, captured.length * 2);
+            keys = java.util.Arrays.copyOf(keys, keys.length * 2);
+        }
+        captured[ply] = (byte) code;
+        keys[ply] = key;
+        capturesKnown++;
+    }
+
+    boolean knowsCapture(int ply) {
+        return ply < capturesKnown;
+    }
+
+    int capturedAt(int ply) {
+        return captured[ply];
+    }
+
+    long keyAt(int ply) {
+        return keys[ply];
+    }
+
+    /**
+     * Keeps the board's position as the snapshot of ply if ply is the next one due and
+     * every move before it is known.
+     */
+    void offerSnapshot(int ply, byte[] mailbox, int sideIndex) {
+        if (ply == 0 || ply % INTERVAL != 0 || ply / INTERVAL != snapshots.size() + 1 || ply > capturesKnown) return;
+        byte[] snapshot = java.util.Arrays.copyOf(mailbox, mailbox.length + 1);
+        snapshot[mailbox.length] = (byte) sideIndex;
+        snapshots.add(snapshot);
+    }
+
+    /**
+     * Latest snapshot ply at or before ply, 0 (the start position) if none.
+     */
+    int snapshotBefore(int ply) {
+        return Math.min(ply / INTERVAL, snapshots.size()) * INTERVAL;
+    }
+
+    /**
+     * Snapshot of a ply returned by snapshotBefore, other than 0.
+     */
+    byte[] snapshot(int ply) {
+        return snapshots.get(ply / INTERVAL - 1);
+    }
+}
@@ -0,0 +1,353 @@
+package Core;
+
+import data.PieceType;
+import data.Position;
+import data.Side;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Move generation on packed int moves (see Moves).
+ * Moves are written into a caller supplied int buffer, so a search can keep one buffer per ply
+ * and generate without allocating. Steps for the horse, elephant, advisor, general and soldier
+ * come from per-square tables built once; chariot and cannon walk precomputed rays.
+ * The rules are the ones the pieces package has always used.
+ */
+public final class MoveGenerator {
+    /** Enough room for every pseudo-legal move of one side. */
+    public static final int MAX_MOVES = 128;
+
+    // RAYS[sq][d] squares walking outward from sq: up, down, left, right
+    private static final int[][][] RAYS = new int[BoardEncoding.SQUARES][4][];
+    private static final int[][] HORSE_STEPS = new int[BoardEncoding.SQUARES][];
+    private static final int[][] HORSE_LEGS = new int[BoardEncoding.SQUARES][];
+    // [side index][square]
+    private static final int[][][] ELEPHANT_STEPS = new int[2][BoardEncoding.SQUARES][];
+    private static final int[][][] ELEPHANT_EYES = new int[2][BoardEncoding.SQUARES][];
+    private static final int[][][] ADVISOR_STEPS = new int[2][BoardEncoding.SQUARES][];
+    private static final int[][][] GENERAL_STEPS = new int[2][BoardEncoding.SQUARES][];
+    private static final int[][][] SOLDIER_STEPS = new int[2][BoardEncoding.SQUARES][];
+
+    private static final int[][] ROOK_DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    private static final int[][] HORSE_MOVES = {
+            {-2, -1}, {-2, 1},
+            {2, -1}, {2, 1},
+            {-1, -2}, {-1, 2},
+            {1, -2}, {1, 2}
+    };
+    private static final int[][] ELEPHANT_MOVES = {{-2, -2}, {-2, 2}, {2, -2}, {2, 2}};
+
+    static {
+        for (int sq = 0; sq < BoardEncoding.SQUARES; sq++) {
+            int row = BoardEncoding.rowOf(sq);
+            int col = BoardEncoding.colOf(sq);
+
+            for (int d = 0; d < 4; d++) {
+                int[] ray = new int[Math.max(Board.ROWS, Board.COLS)];
+                int n = 0;
+                int r = row + ROOK_DIRECTIONS[d][0];
+                int c = col + ROOK_DIRECTIONS[d][1];
+                while (BoardEncoding.onBoard(r, c)) {
+                    ray[n++] = BoardEncoding.square(r, c);
+                    r += ROOK_DIRECTIONS[d][0];
+                    c += ROOK_DIRECTIONS[d][1];
+                }
+                RAYS[sq][d] = java.util.Arrays.copyOf(ray, n);
+            }
+
+            int[] steps = new int[8];
+            int[] legs = new int[8];
+            int n = 0;
+            for (int[] move : HORSE_MOVES) {
+                int r = row + move[0];
+                int c = col + move[1];
+                if (!BoardEncoding.onBoard(r, c)) continue;
+                steps[n] = BoardEncoding.square(r, c);
+                legs[n] = BoardEncoding.square(row + move[0] / 2, col + move[1] / 2);
+                n++;
+            }
+            HORSE_STEPS[sq] = java.util.Arrays.copyOf(steps, n);
+            HORSE_LEGS[sq] = java.util.Arrays.copyOf(legs, n);
+
+            for (int side = 0; side < 2; side++) {
+                Side s = BoardEncoding.sideOfIndex(side);
+                buildElephant(side, s, sq, row, col);
+                buildAdvisor(side, s, sq);
+                buildGeneral(side, s, sq, row, col);
+                buildSoldier(side, s, sq, row, col);
+            }
+        }
+    }
+
+    private static void buildElephant(int side, Side s, int sq, int row, int col) {
+        int[] steps = new int[4];
+        int[] eyes = new int[4];
+        int n = 0;
+        for (int[] move : ELEPHANT_MOVES) {
+            int r = row + move[0];
+            int c = col + move[1];
+            if (!BoardEncoding.onBoard(r, c)) continue;
+            // an elephant never crosses the river
+            if (!((s == Side.RED && r >= 5) || (s == Side.BLACK && r <= 4))) continue;
+            steps[n] = BoardEncoding.square(r, c);
+            eyes[n] = BoardEncoding.square(row + move[0] / 2, col + move[1] / 2);
+            n++;
+        }
+        ELEPHANT_STEPS[side][sq] = java.util.Arrays.copyOf(steps, n);
+        ELEPHANT_EYES[side][sq] = java.util.Arrays.copyOf(eyes, n);
+    }
+
+    private static void buildAdvisor(int side, Side s, int sq) {
+        Position center = s == Side.RED ? pieces.AdvisorPiece.RED_ADVISOR_CENTER : pieces.AdvisorPiece.BLACK_ADVISOR_CENTER;
+        Position[] edges = s == Side.RED ? pieces.AdvisorPiece.RED_ADVISOR_EDGES : pieces.AdvisorPiece.BLACK_ADVISOR_EDGES;
+        // from the centre to any corner of the palace, from anywhere else back to the centre
+        if (sq == BoardEncoding.square(center)) {
+            int[] steps = new int[edges.length];
+            for (int i = 0; i < edges.length; i++) {
+                steps[i] = BoardEncoding.square(edges[i]);
+            }
+            ADVISOR_STEPS[side][sq] = steps;
+        } else {
+            ADVISOR_STEPS[side][sq] = new int[]{BoardEncoding.square(center)};
+        }
+    }
+
+    private static void buildGeneral(int side, Side s, int sq, int row, int col) {
+        int[] steps = new int[4];
+        int n = 0;
+        for (int[] dir : ROOK_DIRECTIONS) {
+            int r = row + dir[0];
+            int c = col + dir[1];
+            if (BoardEncoding.onBoard(r, c) && Attacks.inPalace(s, r, c)) {
+                steps[n++] = BoardEncoding.square(r, c);
+            }
+        }
+        GENERAL_STEPS[side][sq] = java.util.Arrays.copyOf(steps, n);
+    }
+
+    private static void buildSoldier(int side, Side s, int sq, int row, int col) {
+        int[] steps = new int[3];
+        int n = 0;
+        int forwardRow = s == Side.RED ? row - 1 : row + 1;
+        if (forwardRow >= 0 && forwardRow < Board.ROWS) {
+            steps[n++] = BoardEncoding.square(forwardRow, col);
+        }
+        boolean crossedRiver = s == Side.RED ? row <= 4 : row >= 5;
+        if (crossedRiver) {
+            if (col - 1 >= 0) steps[n++] = BoardEncoding.square(row, col - 1);
+            if (col + 1 < Board.COLS) steps[n++] = BoardEncoding.square(row, col + 1);
+        }
+        SOLDIER_STEPS[side][sq] = java.util.Arrays.copyOf(steps, n);
+    }
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Writes every pseudo-legal move of the side into moves starting at start.
+     * @return the index one past the last move written
+     */
+    public static int generate(Board board, Side side, int[] moves, int start) {
+        long low = board.getOccupancyLow(side);
+        long high = board.getOccupancyHigh(side);
+        int count = start;
+        while (low != 0) {
+            int sq = Long.numberOfTrailingZeros(low);
+            low &= low - 1;
+            count = generatePiece(board, sq, board.getPieceCode(sq), moves, count);
+        }
+        while (high != 0) {
+            int sq = 64 + Long.numberOfTrailingZeros(high);
+            high &= high - 1;
+            count = generatePiece(board, sq, board.getPieceCode(sq), moves, count);
+        }
+        return count;
+    }
+
+    /**
+     * Writes the pseudo-legal moves of a piece with the given code standing on from.
+     * @return the index one past the last move written
+     */
+    public static int generatePiece(Board board, int from, int code, int[] moves, int count) {
+        int us = BoardEncoding.sideIndexOf(code);
+        switch (BoardEncoding.typeOf(code)) {
+            case CHARIOT:
+                for (int[] ray : RAYS[from]) {
+                    for (int to : ray) {
+                        int target = board.getPieceCode(to);
+                        if (target == BoardEncoding.EMPTY) {
+                            moves[count++] = Moves.pack(from, to, code, 0);
+                            continue;
+                        }
+                        if (BoardEncoding.sideIndexOf(target) != us) {
+                            moves[count++] = Moves.pack(from, to, code, target);
+                        }
+                        break;
+                    }
+                }
+                return count;
+            case CANNON:
+                for (int[] ray : RAYS[from]) {
+                    boolean hasJumped = false;
+                    for (int to : ray) {
+                        int target = board.getPieceCode(to);
+                        if (!hasJumped) {
+                            if (target == BoardEncoding.EMPTY) {
+                                moves[count++] = Moves.pack(from, to, code, 0);
+                            } else {
+                                hasJumped = true;
+                            }
+                        } else if (target != BoardEncoding.EMPTY) {
+                            if (BoardEncoding.sideIndexOf(target) != us) {
+                                moves[count++] = Moves.pack(from, to, code, target);
+                            }
+                            break;
+                        }
+                    }
+                }
+                return count;
+            case HORSE: {
+                int[] steps = HORSE_STEPS[from];
+                int[] legs = HORSE_LEGS[from];
+                for (int i = 0; i < steps.length; i++) {
+                    if (board.getPieceCode(legs[i]) != BoardEncoding.EMPTY) continue;
+                    count = addStep(board, from, steps[i], code, us, moves, count);
+                }
+                return count;
+            }
+            case ELEPHANT: {
+                int[] steps = ELEPHANT_STEPS[us][from];
+                int[] eyes = ELEPHANT_EYES[us][from];
+                for (int i = 0; i < steps.length; i++) {
+                    if (board.getPieceCode(eyes[i]) != BoardEncoding.EMPTY) continue;
+                    count = addStep(board, from, steps[i], code, us, moves, count);
+                }
+                return count;
+            }
+            case ADVISOR:
+                for (int to : ADVISOR_STEPS[us][from]) {
+                    count = addStep(board, from, to, code, us, moves, count);
+                }
+                return count;
+            case GENERAL:
+                for (int to : GENERAL_STEPS[us][from]) {
+                    count = addStep(board, from, to, code, us, moves, count);
+                }
+                // the two generals may not face each other on an open file
+                for (int d = 0; d < 2; d++) {
+                    for (int to : RAYS[from][d]) {
+                        int target = board.getPieceCode(to);
+                        if (target == BoardEncoding.EMPTY) continue;
+                        if (BoardEncoding.typeOf(target) == PieceType.GENERAL && BoardEncoding.sideIndexOf(target) != us) {
+                            moves[count++] = Moves.pack(from, to, code, target);
+                        }
+                        break;
+                    }
+                }
+                return count;
+            case SOLDIER:
+                for (int to : SOLDIER_STEPS[us][from]) {
+                    count = addStep(board, from, to, code, us, moves, count);
+                }
+                return count;
+            default:
+                return count;
+        }
+    }
+
+    private static int addStep(Board board, int from, int to, int code, int us, int[] moves, int count) {
+        int target = board.getPieceCode(to);
+        if (target == BoardEncoding.EMPTY) {
+            moves[count++] = Moves.pack(from, to, code, 0);
+        } else if (BoardEncoding.sideIndexOf(target) != us) {
+            moves[count++] = Moves.pack(from, to, code, target);
+        }
+        return count;
+    }
+
+    /**
+     * Drops the moves in moves[start..end) that leave the mover's own general attacked,
+     * keeping the order of the rest.
+     * @return the new end index
+     */
+    public static int filterLegal(Board board, int[] moves, int start, int end) {
+        int kept = start;
+        for (int i = start; i < end; i++) {
+            int move = moves[i];
+            if (isLegal(board, move)) {
+                moves[kept++] = move;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Whether a pseudo-legal move keeps the mover's own general out of attack.
+     */
+    public static boolean isLegal(Board board, int move) {
+        Side mover = BoardEncoding.sideOf(Moves.moving(move));
+        board.makeMove(Moves.from(move), Moves.to(move));
+        boolean isInCheck = board.isGeneralInCheck(mover);
+        board.unmakeMove(move);
+        return !isInCheck;
+    }
+
+    /**
+     * Whether the side has a legal move at all, stopping at the first one found.
+     * The likeliest ways out of check go first: general moves, then captures (taking the
+     * checking piece is one of them), then everything else.
+     */
+    public static boolean hasLegalMove(Board board, Side side) {
+        int[] moves = new int[MAX_MOVES];
+        int general = board.getGeneralSquare(side);
+        if (general >= 0) {
+            int count = generatePiece(board, general, board.getPieceCode(general), moves, 0);
+            for (int i = 0; i < count; i++) {
+                if (isLegal(board, moves[i])) return true;
+            }
+        }
+        int end = generate(board, side, moves, 0);
+        for (int i = 0; i < end; i++) {
+            if (Moves.isCapture(moves[i]) && Moves.from(moves[i]) != general && isLegal(board, moves[i])) return true;
+        }
+        for (int i = 0; i < end; i++) {
+            if (!Moves.isCapture(moves[i]) && Moves.from(moves[i]) != general && isLegal(board, moves[i])) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes every legal move of the side into moves starting at start.
+     * @return the index one past the last move written
+     */
+    public static int generateLegal(Board board, Side side, int[] moves, int start) {
+        return filterLegal(board, moves, start, generate(board, side, moves, start));
+    }
+
+    /**
+     * Writes the legal captures of the side into moves starting at start, for quiescence search.
+     * @return the index one past the last move written
+     */
+    public static int generateLegalCaptures(Board board, Side side, int[] moves, int start) {
+        int end = generate(board, side, moves, start);
+        int kept = start;
+        for (int i = start; i < end; i++) {
+            if (Moves.isCapture(moves[i])) {
+                moves[kept++] = moves[i];
+            }
+        }
+        return filterLegal(board, moves, start, kept);
+    }
+
+    /**
+     * Target squares of moves[start..end) as Positions, for the List based API.
+     */
+    public static List<Position> targets(int[] moves, int start, int end) {
+        List<Position> positions = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            positions.add(BoardEncoding.toPosition(Moves.to(moves[i])));
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,55 @@
+package Core;
+
+import GameSave.MoveRecord;
+
+/**
+ * Packed int moves used by the search.
+ * bits 0-6 from square, bits 7-13 to square, bits 14-17 moving piece code,
+ * bits 18-21 captured piece code (0 when the move is quiet). 0 is never a real move.
+ */
+public final class Moves {
+    public static final int NONE = 0;
+
+    private Moves() {
+    }
+
+    public static int pack(int from, int to, int moving, int captured) {
+        return from | (to << 7) | (moving << 14) | (captured << 18);
+    }
+
+    public static int from(int move) {
+        return move & 0x7F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 7) & 0x7F;
+    }
+
+    public static int moving(int move) {
+        return (move >>> 14) & 0xF;
+    }
+
+    public static int captured(int move) {
+        return (move >>> 18) & 0xF;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & (0xF << 18)) != 0;
+    }
+
+    /**
+     * from/to part only, handy for comparing a stored move with a generated one.
+     */
+    public static int squares(int move) {
+        return move & 0x3FFF;
+    }
+
+    public static MoveRecord toRecord(int move) {
+        return new MoveRecord(BoardEncoding.toPosition(from(move)), BoardEncoding.toPosition(to(move)));
+    }
+
+    public static String toString(int move) {
+        if (move == NONE) return "none";
+        return BoardEncoding.positionOf(from(move)) + " -> " + BoardEncoding.positionOf(to(move));
+    }
+}
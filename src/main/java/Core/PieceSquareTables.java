@@ -0,0 +1,162 @@
+package Core;
+
+import data.PieceType;
+
+/**
+ * Static evaluation terms: material plus a bonus per piece per square, e.g. a soldier across
+ * the river or a horse near the centre is worth more than one at home.
+ * Tables are written from red's side (red starts on rows 5-9 and moves towards row 0) and
+ * mirrored for black. Board keeps the sum for the whole position up to date as pieces are
+ * placed and removed, so reading the evaluation costs nothing.
+ */
+public final class PieceSquareTables {
+
+    private static final int[] SOLDIER = {
+            0, 3, 6, 9, 12, 9, 6, 3, 0,
+            18, 36, 56, 80, 120, 80, 56, 36, 18,
+            14, 26, 42, 60, 80, 60, 42, 26, 14,
+            10, 20, 30, 34, 40, 34, 30, 20, 10,
+            6, 12, 18, 18, 20, 18, 18, 12, 6,
+            2, 0, 8, 0, 8, 0, 8, 0, 2,
+            0, 0, -2, 0, 4, 0, -2, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+    };
+
+    private static final int[] HORSE = {
+            4, 8, 16, 12, 4, 12, 16, 8, 4,
+            4, 10, 28, 16, 8, 16, 28, 10, 4,
+            12, 14, 16, 20, 18, 20, 16, 14, 12,
+            8, 24, 18, 24, 20, 24, 18, 24, 8,
+            6, 16, 14, 18, 16, 18, 14, 16, 6,
+            4, 12, 16, 14, 12, 14, 16, 12, 4,
+            2, 6, 8, 6, 10, 6, 8, 6, 2,
+            4, 2, 8, 8, 4, 8, 8, 2, 4,
+            0, 2, 4, 4, -2, 4, 4, 2, 0,
+            0, -4, 0, 0, 0, 0, 0, -4, 0,
+    };
+
+    private static final int[] CHARIOT = {
+            14, 14, 12, 18, 16, 18, 12, 14, 14,
+            16, 20, 18, 24, 26, 24, 18, 20, 16,
+            12, 12, 12, 18, 18, 18, 12, 12, 12,
+            12, 18, 16, 22, 22, 22, 16, 18, 12,
+            12, 14, 12, 18, 18, 18, 12, 14, 12,
+            12, 16, 14, 20, 20, 20, 14, 16, 12,
+            6, 10, 8, 14, 14, 14, 8, 10, 6,
+            4, 8, 6, 14, 12, 14, 6, 8, 4,
+            8, 4, 8, 16, 8, 16, 8, 4, 8,
+            -2, 10, 6, 14, 12, 14, 6, 10, -2,
+    };
+
+    private static final int[] CANNON = {
+            6, 4, 0, -10, -12, -10, 0, 4, 6,
+            2, 2, 0, -4, -14, -4, 0, 2, 2,
+            2, 2, 0, -10, -8, -10, 0, 2, 2,
+            0, 0, -2, 4, 10, 4, -2, 0, 0,
+            0, 0, 0, 2, 8, 2, 0, 0, 0,
+            -2, 0, 4, 2, 6, 2, 4, 0, -2,
+            0, 0, 0, 2, 4, 2, 0, 0, 0,
+            4, 0, 8, 6, 10, 6, 8, 0, 4,
+            0, 2, 4, 6, 6, 6, 4, 2, 0,
+            0, 0, 2, 6, 6, 6, 2, 0, 0,
+    };
+
+    // advisors, elephants and the general stay at home, only their spot there matters
+
+    private static final int[] ADVISOR = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, -2, 0, -2, 0, 0, 0,
+            0, 0, 0, 0, 4, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+    };
+
+    private static final int[] ELEPHANT = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, -2, 0, 0, 0, -2, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            -2, 0, 0, 0, 4, 0, 0, 0, -2,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+    };
+
+    private static final int[] GENERAL = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, -20, -20, -20, 0, 0, 0,
+            0, 0, 0, -10, -8, -10, 0, 0, 0,
+            0, 0, 0, -2, 0, -2, 0, 0, 0,
+    };
+
+    // VALUES[code][square]: material plus square bonus, positive for red pieces and negative for black
+    private static final int[][] VALUES = new int[BoardEncoding.CODES][BoardEncoding.SQUARES];
+
+    static {
+        for (int code = 0; code < BoardEncoding.CODES; code++) {
+            if (code == BoardEncoding.EMPTY || (code & 7) == 0) continue;
+            PieceType type = BoardEncoding.typeOf(code);
+            boolean black = BoardEncoding.sideIndexOf(code) == 1;
+            int[] table = tableOf(type);
+            for (int sq = 0; sq < BoardEncoding.SQUARES; sq++) {
+                // black reads red's table upside down
+                int row = black ? Board.ROWS - 1 - BoardEncoding.rowOf(sq) : BoardEncoding.rowOf(sq);
+                int value = pieceValue(type) + table[row * Board.COLS + BoardEncoding.colOf(sq)];
+                VALUES[code][sq] = black ? -value : value;
+            }
+        }
+    }
+
+    private PieceSquareTables() {
+    }
+
+    private static int[] tableOf(PieceType type) {
+        switch (type) {
+            case GENERAL: return GENERAL;
+            case ADVISOR: return ADVISOR;
+            case ELEPHANT: return ELEPHANT;
+            case CHARIOT: return CHARIOT;
+            case HORSE: return HORSE;
+            case CANNON: return CANNON;
+            default: return SOLDIER;
+        }
+    }
+
+    /**
+     * Material value of a piece type.
+     */
+    public static int pieceValue(PieceType t) {
+        switch (t) {
+            case GENERAL: return 100000;
+            case CHARIOT: return 900;
+            case CANNON: return 450;
+            case HORSE: return 400;
+            case ELEPHANT: return 250;
+            case ADVISOR: return 250;
+            case SOLDIER: return 200;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Value of the piece with this code standing on sq, from red's point of view.
+     */
+    public static int value(int code, int sq) {
+        return VALUES[code][sq];
+    }
+}
@@ -0,0 +1,71 @@
+package Core;
+
+/**
+ * Zobrist keys of the positions that came before the board's current one, oldest first:
+ * the game's positions up to the one shown, then those of any search line played on top
+ * with makeMove. Board keeps it in step with every move made and taken back.
+ *
+ * Looking up the current position is O(1) in the usual case where it has not been seen:
+ * a small table counts the keys by their low bits, and only a non zero count means the
+ * keys have to be scanned.
+ */
+final class PositionHistory {
+    private static final int FILTER_BITS = 12;
+    private static final int FILTER_MASK = (1 << FILTER_BITS) - 1;
+
+    private long[] keys = new long[256];
+    private int size = 0;
+    // how many of the keys fall into each bucket of their low bits
+    private final short[] filter = new short[1 << FILTER_BITS];
+
+    void push(long key) {
+        if (size == keys.length) {
+            keys = java.util.Arrays.copyOf(keys, size * 2);
+        }
+        keys[size++] = key;
+        filter[(int) key & FILTER_MASK]++;
+    }
+
+    void pop() {
+        filter[(int) keys[--size] & FILTER_MASK]--;
+    }
+
+    void clear() {
+        while (size > 0) pop();
+    }
+
+    void copyFrom(PositionHistory other) {
+        clear();
+        for (int i = 0; i < other.size; i++) {
+            push(other.keys[i]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * How many plies back the nth latest earlier occurrence of key is (1 for the latest),
+     * 0 if it has not occurred that often.
+     */
+    int distanceBack(long key, int nth) {
+        if (filter[(int) key & FILTER_MASK] == 0) return 0;
+        for (int i = size - 1; i >= 0; i--) {
+            if (keys[i] == key && --nth == 0) return size - i;
+        }
+        return 0;
+    }
+
+    /**
+     * How many times key occurs.
+     */
+    int count(long key) {
+        if (filter[(int) key & FILTER_MASK] == 0) return 0;
+        int count = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            if (keys[i] == key) count++;
+        }
+        return count;
+    }
+}
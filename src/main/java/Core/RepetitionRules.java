@@ -0,0 +1,122 @@
+package Core;
+
+import GameSave.MoveRecord;
+import data.PieceType;
+import data.Side;
+
+import java.util.List;
+
+/**
+ * Xiangqi rules for a repeated position, simplified from the Asian rules:
+ * once the position on the board has come up for the third time the moves in between are
+ * looked at. A side that gave check with every one of its moves (长将) loses, and so does a
+ * side that checked or chased with every move (长捉) while the other side did not.
+ * Anything else is a draw.
+ *
+ * A move chases when it leaves the mover attacking a piece it did not attack before that
+ * cannot be taken back safely: unprotected, or worth more than the attacker. Generals and
+ * soldiers may chase freely and soldiers may be chased freely.
+ */
+public final class RepetitionRules {
+    public static final int NONE = -1;
+    public static final int DRAW = 0;
+    public static final int RED_LOSES = 1;
+    public static final int BLACK_LOSES = 2;
+
+    // occurrences of the same position that end the game, counting the current one
+    public static final int OCCURRENCES = 3;
+
+    private RepetitionRules() {
+    }
+
+    /**
+     * Verdict on the position at the end of the board's move history.
+     * @return NONE if the position has not repeated often enough, or the board shows an
+     * earlier step; DRAW, RED_LOSES or BLACK_LOSES otherwise
+     */
+    public static int judge(Board board) {
+        List<MoveRecord> history = board.moveHistory;
+        if (board.getCurrentViewingStep() != history.size()) return NONE;
+        if (board.repetitions() < OCCURRENCES - 1) return NONE;
+        int plies = board.repetitionDistance(OCCURRENCES - 1);
+        if (plies == 0 || plies > history.size()) return NONE;
+
+        // nothing was captured in between, or the positions would differ, so the moves
+        // can be taken back on a copy by playing them in reverse
+        Board copy = new Board(board);
+        int first = history.size() - plies;
+        for (int i = history.size() - 1; i >= first; i--) {
+            int from = BoardEncoding.square(history.get(i).fromPosition);
+            int to = BoardEncoding.square(history.get(i).toPosition);
+            if (copy.getPieceCode(from) != BoardEncoding.EMPTY || copy.getPieceCode(to) == BoardEncoding.EMPTY) return DRAW;
+            copy.makeMove(to, from);
+        }
+
+        boolean[] allChecks = {true, true};
+        boolean[] allForcing = {true, true};
+        boolean[] moved = new boolean[2];
+        boolean[] before = new boolean[BoardEncoding.SQUARES];
+        boolean[] after = new boolean[BoardEncoding.SQUARES];
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (int i = first; i < history.size(); i++) {
+            Side mover = copy.getCurrentTurn();
+            int s = BoardEncoding.sideIndex(mover);
+            chased(copy, mover, before, moves);
+            copy.makeMove(BoardEncoding.square(history.get(i).fromPosition), BoardEncoding.square(history.get(i).toPosition));
+            boolean check = copy.isGeneralInCheck(mover.opposite());
+            boolean chase = false;
+            if (!check) {
+                chased(copy, mover, after, moves);
+                for (int sq = 0; sq < BoardEncoding.SQUARES && !chase; sq++) {
+                    chase = after[sq] && !before[sq];
+                }
+            }
+            moved[s] = true;
+            allChecks[s] &= check;
+            allForcing[s] &= check || chase;
+        }
+        int red = BoardEncoding.sideIndex(Side.RED);
+        int black = BoardEncoding.sideIndex(Side.BLACK);
+        allChecks[red] &= moved[red];
+        allChecks[black] &= moved[black];
+        allForcing[red] &= moved[red];
+        allForcing[black] &= moved[black];
+
+        if (allChecks[red] != allChecks[black]) return allChecks[red] ? RED_LOSES : BLACK_LOSES;
+        if (allChecks[red]) return DRAW;
+        if (allForcing[red] != allForcing[black]) return allForcing[red] ? RED_LOSES : BLACK_LOSES;
+        return DRAW;
+    }
+
+    // marks the squares of the opponent's pieces the side attacks in a way that counts as chasing
+    private static void chased(Board board, Side side, boolean[] marked, int[] moves) {
+        java.util.Arrays.fill(marked, false);
+        int count = MoveGenerator.generateLegalCaptures(board, side, moves, 0);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            PieceType attacker = BoardEncoding.typeOf(Moves.moving(move));
+            PieceType target = BoardEncoding.typeOf(Moves.captured(move));
+            if (attacker == PieceType.GENERAL || attacker == PieceType.SOLDIER) continue;
+            if (target == PieceType.GENERAL || target == PieceType.SOLDIER) continue;
+            int to = Moves.to(move);
+            if (marked[to]) continue;
+            if (rank(target) > rank(attacker)) {
+                marked[to] = true;
+                continue;
+            }
+            int played = board.makeMove(Moves.from(move), to);
+            marked[to] = !board.isSquareAttacked(BoardEncoding.positionOf(to), side.opposite());
+            board.unmakeMove(played);
+        }
+    }
+
+    // the rules count horse and cannon as equal, unlike the evaluation
+    private static int rank(PieceType type) {
+        switch (type) {
+            case CHARIOT: return 3;
+            case HORSE:
+            case CANNON: return 2;
+            default: return 1;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package Core;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist keys for Board positions.
+ * Generated from a fixed seed, so a key means the same position across runs and machines
+ * (anything written to disk keyed by position depends on that).
+ */
+public final class Zobrist {
+    private static final long SEED = 0x5A0B_C4E5_5F1E_D0C7L;
+
+    // PIECE_SQUARE[code][square], unused codes stay 0
+    private static final long[][] PIECE_SQUARE = new long[BoardEncoding.CODES][BoardEncoding.SQUARES];
+    /** Mixed in while black is to move. */
+    public static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int code = 0; code < BoardEncoding.CODES; code++) {
+            if (code == BoardEncoding.EMPTY || (code & 7) == 0) continue;
+            for (int sq = 0; sq < BoardEncoding.SQUARES; sq++) {
+                PIECE_SQUARE[code][sq] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long pieceSquare(int code, int sq) {
+        return PIECE_SQUARE[code][sq];
+    }
+}
@@ -109,6 +109,15 @@ public class Game{
                     }
                     System.out.println("Move successful!");
                     int status = board.judgeGameOver();
+                    //摆棋 moves do not take turns, so repeated positions mean nothing there
+                    if(status>=5&&getGameStatus()==GameStatus.ALTERING){
+                        status=-1;
+                    }
+                    //机器在预想的应着以外的局面或者棋局结束时不再后台思考
+                    if(elements!=null&&elements.aiMove!=null){
+                        if(status>0) elements.aiMove.stopPondering();
+                        else elements.aiMove.stopPonderingUnlessAt(board);
+                    }
                     GameStatus prevStatus=null;
                     if(elements!=null){
                         prevStatus = elements.game.getGameStatus();
@@ -125,14 +134,26 @@ public class Game{
                     } else if (status == 4) {
                         System.out.println("Black wins! (Stale)");
                         setGameStatus(GameStatus.BLACK_WIN_STALE);
+                    } else if (status == 5) {
+                        System.out.println("Draw by repetition!");
+                        setGameStatus(GameStatus.TIE);
+                    } else if (status == 6) {
+                        System.out.println("Red wins! (Perpetual)");
+                        setGameStatus(GameStatus.RED_WIN);
+                    } else if (status == 7) {
+                        System.out.println("Black wins! (Perpetual)");
+                        setGameStatus(GameStatus.BLACK_WIN);
                     }
 
                     if(elements!=null&&elements.game.getGameStatus().equals(prevStatus)==false){
                         if(elements.game.getGameStatus().equals(GameStatus.RED_WIN)){
-                            elements.Dialogue.startInfoDialogue(elements,"将死","红方胜利",elements.stage);
+                            elements.Dialogue.startInfoDialogue(elements,status==6?"长打":"将死","红方胜利",elements.stage);
                         }
                         if(elements.game.getGameStatus().equals(GameStatus.BLACK_WIN)){
-                            elements.Dialogue.startInfoDialogue(elements,"将死","黑方胜利",elements.stage);
+                            elements.Dialogue.startInfoDialogue(elements,status==7?"长打":"将死","黑方胜利",elements.stage);
+                        }
+                        if(elements.game.getGameStatus().equals(GameStatus.TIE)){
+                            elements.Dialogue.startInfoDialogue(elements,"重复局面","和棋",elements.stage);
                         }
                         if(elements.game.getGameStatus().equals(GameStatus.RED_WIN_STALE)){
                             elements.Dialogue.startInfoDialogue(elements,"困毙","红方胜利",elements.stage);
@@ -1,16 +1,106 @@
 package GameSave;
 import java.time.LocalDateTime;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import java.util.List;
+import java.util.Objects;
 
 
+/**
+ * Keeps the game's autosave as a journal (see JournalSaveFormat): a move played appends one
+ * record, a regret one more, however long the game is. The whole file is only written again
+ * to start it, when the game it follows changes, and to compact it once moves taken back
+ * take up more than COMPACTION_SLACK records beyond the moves still in the game.
+ * The journal loads like any other save.
+ */
 public class AutoSaver {
-    ChineseChessDataSaver dataSaver=new ChineseChessDataSaver();
+    private static final int COMPACTION_SLACK = 64;
 
     LocalDateTime currentDateTime = LocalDateTime.now();
     String LocalDateTimeString = currentDateTime.toString();
     String fileName = "autosave_" + LocalDateTimeString.replace(":", "-") + ".dat";
+
+    // what the journal on disk holds: the game it follows, how many of its moves, and the
+    // last of those, to notice when the list is no longer the one the journal was written from
+    private List<MoveRecord> journaled;
+    private String journaledUsername;
+    private String journaledFen;
+    private int journaledMoves;
+    private MoveRecord lastJournaled;
+    // records in the file, taken back moves included
+    private int records;
+
     public void autoSaveGameData(String username,List<MoveRecord> moveHistory) throws Exception {
-        dataSaver.saveGameData(username,moveHistory, fileName);
+        autoSaveGameData(username,moveHistory,null);
+    }
+
+    public void autoSaveGameData(String username,List<MoveRecord> moveHistory,String startFen) throws Exception {
+        Path path = Paths.get(fileName);
+        if (!follows(username, moveHistory, startFen) || !Files.exists(path)) {
+            compact(path, username, moveHistory, startFen);
+            return;
+        }
+
+        int size = moveHistory.size();
+        int kept = Math.min(size, journaledMoves);
+        int count = (kept < journaledMoves ? 1 : 0) + size - kept;
+        if (count == 0) return;
+        ByteBuffer buffer = ByteBuffer.allocate(count * JournalSaveFormat.RECORD_SIZE);
+        if (kept < journaledMoves) {
+            JournalSaveFormat.putTruncate(buffer, records++, kept);
+        }
+        for (int i = kept; i < size; i++) {
+            JournalSaveFormat.putMove(buffer, records++, moveHistory.get(i));
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        journaledMoves = size;
+        lastJournaled = size == 0 ? null : moveHistory.get(size - 1);
+
+        if (records > journaledMoves + COMPACTION_SLACK) {
+            compact(path, username, moveHistory, startFen);
+        }
+    }
+
+    // whether the journal was written from this game, so only its end can have changed
+    private boolean follows(String username, List<MoveRecord> moveHistory, String startFen) {
+        if (journaled != moveHistory || !Objects.equals(journaledUsername, username) || !Objects.equals(journaledFen, startFen)) {
+            return false;
+        }
+        // moves were only played or taken back at the end if the last one journaled is still there
+        return journaledMoves == 0 || moveHistory.size() < journaledMoves
+                || moveHistory.get(journaledMoves - 1) == lastJournaled;
+    }
+
+    // writes the journal afresh with only the game's moves, replacing the old one in one step
+    private void compact(Path path, String username, List<MoveRecord> moveHistory, String startFen) throws IOException {
+        byte[] header = JournalSaveFormat.header(username, GameSavePublicness.PRIVATE, startFen);
+        int size = moveHistory.size();
+        ByteBuffer buffer = ByteBuffer.allocate(header.length + size * JournalSaveFormat.RECORD_SIZE);
+        buffer.put(header);
+        for (int i = 0; i < size; i++) {
+            JournalSaveFormat.putMove(buffer, i, moveHistory.get(i));
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temp, buffer.array(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        System.out.println("Autosave journal written to: " + path + " (" + size + " moves)");
+
+        journaled = moveHistory;
+        journaledUsername = username;
+        journaledFen = startFen;
+        journaledMoves = size;
+        lastJournaled = size == 0 ? null : moveHistory.get(size - 1);
+        records = size;
     }
 }
@@ -0,0 +1,109 @@
+package GameSave;
+
+import Core.BoardEncoding;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The save file format: a small header, every move as two bytes, its from and to square
+ * (row*9+col, see Core.BoardEncoding), and a CRC32 of everything before it.
+ *
+ *   4 bytes  "XQSV"
+ *   byte     format version, VERSION
+ *   byte     flags, PUBLIC and HAS_START_FEN
+ *   UTF      username, as DataOutput.writeUTF
+ *   UTF      start position FEN, only with HAS_START_FEN
+ *   int      number of moves
+ *   2 bytes  per move
+ *   int      CRC32
+ *
+ * A later version may add fields; it bumps VERSION and older readers turn the file down.
+ */
+final class CompactSaveFormat {
+    static final byte[] MAGIC = {'X', 'Q', 'S', 'V'};
+    static final int VERSION = 1;
+
+    private static final int PUBLIC = 1;
+    private static final int HAS_START_FEN = 2;
+
+    private CompactSaveFormat() {
+    }
+
+    /**
+     * Whether the file content is in this format rather than LegacySaveFormat's.
+     */
+    static boolean matches(byte[] content) {
+        if (content.length < MAGIC.length) return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (content[i] != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    static byte[] encode(String username, GameSavePublicness publicness, String startFen, List<MoveRecord> moves) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(32 + username.length() + 2 * moves.size());
+        DataOutputStream out = new DataOutputStream(bos);
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte((publicness == GameSavePublicness.PUBLIC ? PUBLIC : 0) | (startFen != null ? HAS_START_FEN : 0));
+        out.writeUTF(username);
+        if (startFen != null) {
+            out.writeUTF(startFen);
+        }
+        out.writeInt(moves.size());
+        for (MoveRecord move : moves) {
+            out.writeByte(BoardEncoding.square(move.fromPosition));
+            out.writeByte(BoardEncoding.square(move.toPosition));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bos.toByteArray());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+        return bos.toByteArray();
+    }
+
+    static GameSaveData decode(byte[] content) throws Exception {
+        int end = content.length - 4;
+        if (end < MAGIC.length + 2) {
+            throw new Exception("存档损坏");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, end);
+        int expected = (content[end] & 0xFF) << 24 | (content[end + 1] & 0xFF) << 16 | (content[end + 2] & 0xFF) << 8 | (content[end + 3] & 0xFF);
+        if ((int) crc.getValue() != expected) {
+            System.out.println("\n!!! SECURITY WARNING: DATA TAMPERED OR CORRUPTED !!!");
+            throw new Exception("存档损坏");
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(content, MAGIC.length, end - MAGIC.length));
+        try {
+            int version = in.readUnsignedByte();
+            if (version > VERSION) {
+                throw new Exception("存档版本过新");
+            }
+            int flags = in.readUnsignedByte();
+            String username = in.readUTF();
+            String startFen = (flags & HAS_START_FEN) != 0 ? in.readUTF() : null;
+            int count = in.readInt();
+            if (count < 0 || count > in.available() / 2) {
+                throw new Exception("存档损坏");
+            }
+            List<MoveRecord> moves = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int from = in.readUnsignedByte();
+                int to = in.readUnsignedByte();
+                if (from >= BoardEncoding.SQUARES || to >= BoardEncoding.SQUARES) {
+                    throw new Exception("存档损坏");
+                }
+                moves.add(new MoveRecord(BoardEncoding.toPosition(from), BoardEncoding.toPosition(to)));
+            }
+            GameSavePublicness publicness = (flags & PUBLIC) != 0 ? GameSavePublicness.PUBLIC : GameSavePublicness.PRIVATE;
+            return new GameSaveData(username, moves, startFen, publicness);
+        } catch (EOFException | UTFDataFormatException e) {
+            throw new Exception("存档损坏");
+        }
+    }
+}
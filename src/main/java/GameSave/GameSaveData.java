@@ -17,6 +17,9 @@ public class GameSaveData implements Serializable {
 
     public GameSavePublicness publicness;
 
+    // FEN the moves start from (see Core.Fen), null for the usual start and in older saves
+    public String startFen;
+
 
     public GameSaveData(String username, List<MoveRecord> moveHistory,Board initialBoard) throws Exception {
         this.username = username;
@@ -32,9 +35,15 @@ public class GameSaveData implements Serializable {
     }
 
     public GameSaveData(String username, List<MoveRecord> moveHistory) throws Exception {
+        this(username, moveHistory, (String) null);
+    }
+
+    public GameSaveData(String username, List<MoveRecord> moveHistory, String startFen) throws Exception {
         this.username = username;
         this.moveHistory = moveHistory;
+        this.startFen = startFen;
         this.initialBoard=new Board(username);
+        initialBoard.setStartPosition(startFen);
 
         Board tempBoard=initialBoard;
         for(MoveRecord moveRecord : moveHistory){
@@ -44,6 +53,14 @@ public class GameSaveData implements Serializable {
         publicness=GameSavePublicness.PRIVATE;
     }
 
+    // as read back from a save file: the boards are left out, like those of a deserialized save
+    GameSaveData(String username, List<MoveRecord> moveHistory, String startFen, GameSavePublicness publicness){
+        this.username = username;
+        this.moveHistory = moveHistory;
+        this.startFen = startFen;
+        this.publicness = publicness;
+    }
+
     public void setPublicness(GameSavePublicness publicness){
         this.publicness=publicness;
     }
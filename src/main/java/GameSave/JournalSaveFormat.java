@@ -0,0 +1,147 @@
+package GameSave;
+
+import Core.BoardEncoding;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The autosave journal, see AutoSaver: a header like CompactSaveFormat's, then one fixed size
+ * record per change to the move history, so saving a move only ever appends RECORD_SIZE bytes.
+ *
+ *   4 bytes  "XQSJ"
+ *   byte     format version, VERSION
+ *   byte     flags, PUBLIC and HAS_START_FEN
+ *   UTF      username, as DataOutput.writeUTF
+ *   UTF      start position FEN, only with HAS_START_FEN
+ *   int      CRC32 of the header
+ *   records  type, three bytes of payload, CRC32 of the record's index and those four bytes
+ *
+ * MOVE records carry the from and to square of a move played, TRUNCATE records the number of
+ * moves left after moves were taken back. A record cut short or failing its check at the very
+ * end is a write that did not finish and is dropped; anywhere else the file is corrupt.
+ */
+final class JournalSaveFormat {
+    static final byte[] MAGIC = {'X', 'Q', 'S', 'J'};
+    static final int VERSION = 1;
+    static final int RECORD_SIZE = 8;
+
+    private static final int PUBLIC = 1;
+    private static final int HAS_START_FEN = 2;
+    private static final int MOVE = 1;
+    private static final int TRUNCATE = 2;
+
+    private JournalSaveFormat() {
+    }
+
+    static boolean matches(byte[] content) {
+        if (content.length < MAGIC.length) return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (content[i] != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    static byte[] header(String username, GameSavePublicness publicness, String startFen) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(32 + username.length());
+        DataOutputStream out = new DataOutputStream(bos);
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte((publicness == GameSavePublicness.PUBLIC ? PUBLIC : 0) | (startFen != null ? HAS_START_FEN : 0));
+        out.writeUTF(username);
+        if (startFen != null) {
+            out.writeUTF(startFen);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bos.toByteArray());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+        return bos.toByteArray();
+    }
+
+    /**
+     * Puts the record for a move, the index-th record of the journal.
+     */
+    static void putMove(ByteBuffer buffer, int index, MoveRecord move) {
+        putRecord(buffer, index, MOVE, BoardEncoding.square(move.fromPosition) << 16 | BoardEncoding.square(move.toPosition) << 8);
+    }
+
+    /**
+     * Puts the record for moves being taken back until count are left.
+     */
+    static void putTruncate(ByteBuffer buffer, int index, int count) {
+        putRecord(buffer, index, TRUNCATE, count);
+    }
+
+    private static void putRecord(ByteBuffer buffer, int index, int type, int payload) {
+        int body = type << 24 | payload & 0xFFFFFF;
+        buffer.putInt(body);
+        buffer.putInt(check(index, body));
+    }
+
+    private static int check(int index, int body) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(8).putInt(index).putInt(body).array());
+        return (int) crc.getValue();
+    }
+
+    static GameSaveData decode(byte[] content) throws Exception {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+        String username;
+        String startFen;
+        int flags;
+        int headerSize;
+        try {
+            in.skipNBytes(MAGIC.length);
+            int version = in.readUnsignedByte();
+            if (version > VERSION) {
+                throw new Exception("存档版本过新");
+            }
+            flags = in.readUnsignedByte();
+            username = in.readUTF();
+            startFen = (flags & HAS_START_FEN) != 0 ? in.readUTF() : null;
+            headerSize = content.length - in.available();
+            CRC32 crc = new CRC32();
+            crc.update(content, 0, headerSize);
+            if (in.readInt() != (int) crc.getValue()) {
+                throw new Exception("存档损坏");
+            }
+        } catch (EOFException | UTFDataFormatException e) {
+            throw new Exception("存档损坏");
+        }
+
+        ByteBuffer records = ByteBuffer.wrap(content, headerSize + 4, content.length - headerSize - 4);
+        List<MoveRecord> moves = new ArrayList<>();
+        for (int index = 0; records.remaining() >= RECORD_SIZE; index++) {
+            int body = records.getInt();
+            boolean valid = records.getInt() == check(index, body);
+            int type = body >>> 24;
+            int payload = body & 0xFFFFFF;
+            if (valid && type == MOVE) {
+                int from = payload >>> 16, to = payload >>> 8 & 0xFF;
+                valid = from < BoardEncoding.SQUARES && to < BoardEncoding.SQUARES;
+                if (valid) moves.add(new MoveRecord(BoardEncoding.toPosition(from), BoardEncoding.toPosition(to)));
+            } else if (valid && type == TRUNCATE) {
+                valid = payload <= moves.size();
+                if (valid) moves.subList(payload, moves.size()).clear();
+            } else {
+                valid = false;
+            }
+            if (!valid) {
+                if (records.hasRemaining()) {
+                    System.out.println("\n!!! SECURITY WARNING: DATA TAMPERED OR CORRUPTED !!!");
+                    throw new Exception("存档损坏");
+                }
+                System.out.println("Dropped an unfinished autosave record");
+            }
+        }
+        if (records.hasRemaining()) {
+            System.out.println("Dropped an unfinished autosave record");
+        }
+        GameSavePublicness publicness = (flags & PUBLIC) != 0 ? GameSavePublicness.PUBLIC : GameSavePublicness.PRIVATE;
+        return new GameSaveData(username, moves, startFen, publicness);
+    }
+}
@@ -0,0 +1,94 @@
+package GameSave;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.zip.*;
+
+/**
+ * Reads saves written before CompactSaveFormat: the SHA-256 of the rest of the file as a hex
+ * line, then a zlib compressed, Java serialized GameSaveData. Nothing is written this way any more.
+ */
+final class LegacySaveFormat {
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final byte SEPARATOR = '\n';
+
+    private LegacySaveFormat() {
+    }
+
+    /**
+     * Converts a byte array to its hexadecimal string representation.
+     */
+    private static String bytesToHex(byte[] bytes) {
+        Formatter formatter = new Formatter();
+        for (byte b : bytes) {
+            formatter.format("%02x", b);
+        }
+        String result = formatter.toString();
+        formatter.close();
+        return result;
+    }
+
+    /**
+     * Decompresses a byte array using the Inflater (ZLib).
+     */
+    private static byte[] decompress(byte[] compressedData) throws DataFormatException, IOException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressedData);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(compressedData.length);
+        byte[] buffer = new byte[1024];
+        while (!inflater.finished()) {
+            int count = inflater.inflate(buffer);
+            if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                throw new DataFormatException("truncated");
+            }
+            outputStream.write(buffer, 0, count);
+        }
+        outputStream.close();
+        return outputStream.toByteArray();
+    }
+
+    static GameSaveData decode(byte[] fileContent) throws Exception {
+        // Find the separator (the newline character)
+        int separatorIndex = -1;
+        for (int i = 0; i < fileContent.length; i++) {
+            if (fileContent[i] == SEPARATOR) {
+                separatorIndex = i;
+                break;
+            }
+        }
+
+        if (separatorIndex == -1) {
+            System.out.println("!!! CRITICAL ERROR: File format corrupted (no hash separator) !!!");
+            throw new Exception("存档损坏");
+        }
+
+        // Extract expected hash and compressed data
+        String expectedHash = new String(fileContent, 0, separatorIndex, StandardCharsets.US_ASCII);
+        byte[] compressedData = Arrays.copyOfRange(fileContent, separatorIndex + 1, fileContent.length);
+
+        // Recalculate Hash
+        MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        String recalculatedHash = bytesToHex(digest.digest(compressedData));
+
+        System.out.println("Expected Hash:      " + expectedHash);
+        System.out.println("Recalculated Hash:  " + recalculatedHash);
+
+        // Integrity Check
+        if (!expectedHash.equals(recalculatedHash)) {
+            System.out.println("\n!!! SECURITY WARNING: DATA TAMPERED OR CORRUPTED !!!");
+            throw new Exception("存档损坏");
+        }
+
+        System.out.println("Integrity Check PASSED. Data is trustworthy.");
+
+        // Decompress and Deserialize
+        byte[] dataBytes = decompress(compressedData);
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(dataBytes))) {
+            return (GameSaveData) ois.readObject();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package OpeningBook;
+
+import Core.Board;
+import Core.MoveGenerator;
+import Core.Moves;
+import data.Side;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Read-only opening book: positions seen in earlier games and the moves played from them.
+ * The file is memory-mapped, so opening it reads nothing up front and a lookup touches only
+ * the few pages its binary search lands on.
+ *
+ * File layout (big-endian): int magic "XQBK", int version, int entry count, then the entries
+ * sorted by key, ENTRY_BYTES each: long Zobrist key (see Core.Zobrist), short move (from/to
+ * squares, see Moves.squares), short weight (how often it was played). A position with several
+ * book moves has one entry per move, next to each other. OpeningBookBuilder writes these files.
+ */
+public class OpeningBook {
+    public static final String DEFAULT_PATH = "OpeningBook.bin";
+    static final int MAGIC = 0x58514B42; // "XQBK"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 12;
+    static final int ENTRY_BYTES = 12;
+
+    private final MappedByteBuffer buffer;
+    private final int entryCount;
+
+    private OpeningBook(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not an opening book");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("unsupported opening book version " + buffer.getInt(4));
+        }
+        this.entryCount = buffer.getInt(8);
+        if ((long) HEADER_BYTES + (long) entryCount * ENTRY_BYTES > buffer.capacity()) {
+            throw new IOException("opening book truncated");
+        }
+    }
+
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Opens the book at path if there is one.
+     * @return the book, or null if the file is missing or unreadable
+     */
+    public static OpeningBook openIfExists(String path) {
+        Path p = Paths.get(path);
+        if (!Files.exists(p)) {
+            return null;
+        }
+        try {
+            OpeningBook book = open(p);
+            System.out.println("Opening book loaded: " + book.getEntryCount() + " entries from " + path);
+            return book;
+        } catch (IOException e) {
+            System.out.println("Opening book not loaded: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    private long keyAt(int index) {
+        return buffer.getLong(HEADER_BYTES + index * ENTRY_BYTES);
+    }
+
+    private int moveAt(int index) {
+        return buffer.getShort(HEADER_BYTES + index * ENTRY_BYTES + 8) & 0x3FFF;
+    }
+
+    private int weightAt(int index) {
+        return buffer.getShort(HEADER_BYTES + index * ENTRY_BYTES + 10) & 0xFFFF;
+    }
+
+    // index of the first entry with this key, or of the first larger one
+    private int lowerBound(long key) {
+        int lo = 0, hi = entryCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keyAt(mid) < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Picks one of the book moves for the position at random, more often the more it was played.
+     * Book moves that are not legal here (a key collision, or a stale book) are ignored.
+     * @return the packed move, or Moves.NONE if the position is not in the book
+     */
+    public int pickMove(Board board, Side side) {
+        long key = board.getZobristKey();
+        int first = lowerBound(key);
+        if (first >= entryCount || keyAt(first) != key) {
+            return Moves.NONE;
+        }
+
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(board, side, legal, 0);
+        int[] candidates = new int[MoveGenerator.MAX_MOVES];
+        int[] weights = new int[MoveGenerator.MAX_MOVES];
+        int n = 0;
+        int total = 0;
+        for (int i = first; i < entryCount && keyAt(i) == key && n < candidates.length; i++) {
+            int squares = moveAt(i);
+            for (int j = 0; j < count; j++) {
+                if (Moves.squares(legal[j]) == squares) {
+                    candidates[n] = legal[j];
+                    weights[n] = Math.max(1, weightAt(i));
+                    total += weights[n];
+                    n++;
+                    break;
+                }
+            }
+        }
+        if (n == 0) {
+            return Moves.NONE;
+        }
+
+        int r = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < n; i++) {
+            r -= weights[i];
+            if (r < 0) return candidates[i];
+        }
+        return candidates[n - 1];
+    }
+
+    static void writeHeader(ByteBuffer header, int entryCount) {
+        header.putInt(MAGIC).putInt(VERSION).putInt(entryCount);
+    }
+}
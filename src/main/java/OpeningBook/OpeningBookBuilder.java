@@ -0,0 +1,128 @@
+package OpeningBook;
+
+import Core.Board;
+import Core.BoardEncoding;
+import Core.MoveGenerator;
+import Core.Moves;
+import GameSave.ChineseChessDataSaver;
+import GameSave.GameSaveData;
+import GameSave.MoveRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds an opening book from a directory of .dat game saves.
+ * Every game is replayed from the start position and the first plies are counted: each
+ * (position, move) pair becomes a book entry weighted by how many games played it.
+ *
+ * Usage: OpeningBookBuilder <saves directory> [output file] [plies per game]
+ */
+public class OpeningBookBuilder {
+    public static final int DEFAULT_PLIES = 20;
+
+    // position key -> (move squares -> times played)
+    private final Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+    private final int maxPlies;
+    private int games = 0;
+
+    public OpeningBookBuilder(int maxPlies) {
+        this.maxPlies = maxPlies;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: OpeningBookBuilder <saves directory> [output file] [plies per game]");
+            return;
+        }
+        String output = args.length > 1 ? args[1] : OpeningBook.DEFAULT_PATH;
+        int plies = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PLIES;
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+        builder.addDirectory(Paths.get(args[0]));
+        int entries = builder.write(Paths.get(output));
+        System.out.println("Wrote " + entries + " entries from " + builder.games + " games to " + output);
+    }
+
+    /**
+     * Adds every readable game save in dir. Files that are not game saves, fail their
+     * integrity check or hold an illegal move are skipped.
+     */
+    public void addDirectory(Path dir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.dat")) {
+            for (Path file : files) {
+                try {
+                    GameSaveData data = ChineseChessDataSaver.readGameSaveData(file.toString());
+                    // games set up from a position of their own are no openings
+                    if (data != null && data.startFen == null) {
+                        addGame(data.moveHistory);
+                    }
+                } catch (Exception e) {
+                    System.out.println("Skipping " + file + ": " + e);
+                }
+            }
+        }
+    }
+
+    public void addGame(List<MoveRecord> moves) {
+        Board board = new Board("book");
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        int plies = Math.min(maxPlies, moves.size());
+        for (int i = 0; i < plies; i++) {
+            MoveRecord record = moves.get(i);
+            int from = BoardEncoding.square(record.fromPosition);
+            int to = BoardEncoding.square(record.toPosition);
+            int count = MoveGenerator.generateLegal(board, board.getCurrentTurn(), legal, 0);
+            int move = Moves.NONE;
+            for (int j = 0; j < count; j++) {
+                if (Moves.from(legal[j]) == from && Moves.to(legal[j]) == to) move = legal[j];
+            }
+            if (move == Moves.NONE) {
+                break; // not the game we think it is, keep what came before
+            }
+            counts.computeIfAbsent(board.getZobristKey(), k -> new HashMap<>())
+                    .merge(Moves.squares(move), 1, Integer::sum);
+            board.makeMove(from, to);
+        }
+        games++;
+    }
+
+    /**
+     * Writes the book sorted by key, so OpeningBook can binary search it.
+     * @return the number of entries written
+     */
+    public int write(Path output) throws IOException {
+        List<long[]> entries = new ArrayList<>();
+        for (Map.Entry<Long, Map<Integer, Integer>> position : counts.entrySet()) {
+            for (Map.Entry<Integer, Integer> move : position.getValue().entrySet()) {
+                entries.add(new long[]{position.getKey(), move.getKey(), Math.min(0xFFFF, move.getValue())});
+            }
+        }
+        // by key, then the most played move first
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[2], a[2]));
+
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_BYTES + entries.size() * OpeningBook.ENTRY_BYTES);
+        OpeningBook.writeHeader(buffer, entries.size());
+        for (long[] e : entries) {
+            buffer.putLong(e[0]).putShort((short) e[1]).putShort((short) e[2]);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        return entries.size();
+    }
+}
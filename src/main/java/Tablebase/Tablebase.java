@@ -0,0 +1,328 @@
+package Tablebase;
+
+import Core.Board;
+import Core.BoardEncoding;
+import Core.PieceSquareTables;
+import data.PieceType;
+import data.Side;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Distance-to-mate table for one material set, e.g. "RvAA": red general and chariot against
+ * black general and two advisors. Every placement of the pieces and side to move has a slot;
+ * a slot holds the exact result with best play, from the side to move's point of view:
+ * v > 0 wins in v plies, v < 0 loses in -v-1 plies (so -1 is mated or stalemated now), 0 draws.
+ * Invalid placements (two pieces on one square, side not to move in check) hold 0.
+ *
+ * A table is stored with the stronger side as red. Positions with the colours the other way
+ * round are looked up upside down with the colours swapped (see index).
+ *
+ * File layout (big-endian): int magic "XQTB", int version, 16 byte ASCII name, int slot count,
+ * then one short per slot. Written by TablebaseGenerator, read through a memory mapping.
+ */
+public class Tablebase {
+    public static final String EXTENSION = ".xqtb";
+    static final int MAGIC = 0x58515442; // "XQTB"
+    static final int VERSION = 1;
+    static final int NAME_BYTES = 16;
+    static final int HEADER_BYTES = 4 + 4 + NAME_BYTES + 4;
+    // piece letters by PieceType ordinal, the general has none in a name
+    static final String LETTERS = "KABRNCP";
+
+    private final String name;
+    // per slot: piece code as stored (red = the stronger side); slots 0 and 1 are the generals
+    private final int[] codes;
+    // per slot: squares the piece can stand on, and square -> place in that list or -1
+    private final int[][] domains;
+    private final int[][] domainIndex;
+    private final int[] strides;
+    // per code: first slot and number of slots holding it
+    private final int[] slotStart = new int[BoardEncoding.CODES];
+    private final int[] slotCount = new int[BoardEncoding.CODES];
+    private final int size;
+    private ShortBuffer values;
+
+    Tablebase(String name) {
+        this.name = name;
+        int v = name.indexOf('v');
+        String red = name.substring(0, v);
+        String black = name.substring(v + 1);
+        int pieces = 2 + red.length() + black.length();
+        codes = new int[pieces];
+        codes[0] = BoardEncoding.code(Side.RED, PieceType.GENERAL);
+        codes[1] = BoardEncoding.code(Side.BLACK, PieceType.GENERAL);
+        for (int i = 0; i < red.length(); i++) {
+            codes[2 + i] = BoardEncoding.code(Side.RED, typeOf(red.charAt(i)));
+        }
+        for (int i = 0; i < black.length(); i++) {
+            codes[2 + red.length() + i] = BoardEncoding.code(Side.BLACK, typeOf(black.charAt(i)));
+        }
+
+        domains = new int[pieces][];
+        domainIndex = new int[pieces][];
+        strides = new int[pieces];
+        long stride = 2; // the lowest bit is the side to move
+        for (int i = 0; i < pieces; i++) {
+            domains[i] = domainOf(codes[i]);
+            domainIndex[i] = new int[BoardEncoding.SQUARES];
+            java.util.Arrays.fill(domainIndex[i], -1);
+            for (int d = 0; d < domains[i].length; d++) {
+                domainIndex[i][domains[i][d]] = d;
+            }
+            strides[i] = (int) stride;
+            stride *= domains[i].length;
+            if (stride > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("material set " + name + " is too large for a table");
+            }
+            if (slotCount[codes[i]]++ == 0) {
+                slotStart[codes[i]] = i;
+            }
+        }
+        size = (int) stride;
+    }
+
+    public static Tablebase load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a tablebase");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException(path + ": unsupported tablebase version " + buffer.getInt(4));
+            }
+            byte[] nameBytes = new byte[NAME_BYTES];
+            buffer.get(8, nameBytes);
+            Tablebase table = new Tablebase(new String(nameBytes, StandardCharsets.US_ASCII).trim());
+            int slots = buffer.getInt(8 + NAME_BYTES);
+            if (slots != table.size || (long) HEADER_BYTES + 2L * slots > buffer.capacity()) {
+                throw new IOException(path + " does not match its material set");
+            }
+            table.values = buffer.slice(HEADER_BYTES, 2 * slots).asShortBuffer();
+            return table;
+        }
+    }
+
+    void write(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 2 * size);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        byte[] nameBytes = java.util.Arrays.copyOf(name.getBytes(StandardCharsets.US_ASCII), NAME_BYTES);
+        for (int i = name.length(); i < NAME_BYTES; i++) nameBytes[i] = ' ';
+        buffer.put(nameBytes).putInt(size);
+        for (int i = 0; i < size; i++) {
+            buffer.putShort(values.get(i));
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Number of pieces besides the two generals.
+     */
+    public int getPieceCount() {
+        return codes.length - 2;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int pieceSlots() {
+        return codes.length;
+    }
+
+    int codeOf(int slot) {
+        return codes[slot];
+    }
+
+    void setValues(short[] values) {
+        this.values = ShortBuffer.wrap(values);
+    }
+
+    /**
+     * Result stored at a slot, see the class comment.
+     */
+    int value(int index) {
+        return values.get(index);
+    }
+
+    /**
+     * Slot of the board's position, or -1 if a piece stands where this table has no room for it.
+     * @param flip read the board upside down with the colours swapped
+     */
+    int index(Board board, Side sideToMove, boolean flip) {
+        int index = (sideToMove == Side.BLACK) != flip ? 1 : 0;
+        for (int code = 0; code < BoardEncoding.CODES; code++) {
+            int n = slotCount[code];
+            if (n == 0) continue;
+            int boardCode = flip ? code ^ BoardEncoding.BLACK_FLAG : code;
+            long low = board.getPieceOccupancyLow(boardCode);
+            long high = board.getPieceOccupancyHigh(boardCode);
+            int slot = slotStart[code];
+            int found = 0;
+            while (low != 0 || high != 0) {
+                int sq;
+                if (low != 0) {
+                    sq = Long.numberOfTrailingZeros(low);
+                    low &= low - 1;
+                } else {
+                    sq = 64 + Long.numberOfTrailingZeros(high);
+                    high &= high - 1;
+                }
+                if (found == n) return -1;
+                int d = domainIndex[slot + found][flip ? mirror(sq) : sq];
+                if (d < 0) return -1;
+                index += d * strides[slot + found];
+                found++;
+            }
+            if (found != n) return -1;
+        }
+        return index;
+    }
+
+    /**
+     * Square of the piece in the given slot at this index.
+     */
+    int squareAt(int index, int slot) {
+        return domains[slot][(index / strides[slot]) % domains[slot].length];
+    }
+
+    static Side sideToMoveAt(int index) {
+        return (index & 1) == 0 ? Side.RED : Side.BLACK;
+    }
+
+    // --- material sets ---
+
+    static PieceType typeOf(char letter) {
+        int t = LETTERS.indexOf(letter);
+        if (t <= 0) throw new IllegalArgumentException("unknown piece letter " + letter);
+        return PieceType.values()[t];
+    }
+
+    /**
+     * Counts of each non-general piece code, four bits per code, so a table can be found for
+     * a board without building its name.
+     */
+    static long materialKey(Board board) {
+        long key = 0;
+        for (int code = 0; code < BoardEncoding.CODES; code++) {
+            if ((code & 7) <= 1) continue; // empty codes and the generals
+            int count = Long.bitCount(board.getPieceOccupancyLow(code)) + Long.bitCount(board.getPieceOccupancyHigh(code));
+            key += (long) Math.min(count, 15) << (4 * code);
+        }
+        return key;
+    }
+
+    long materialKey() {
+        long key = 0;
+        for (int slot = 2; slot < codes.length; slot++) {
+            key += 1L << (4 * codes[slot]);
+        }
+        return key;
+    }
+
+    /**
+     * The same material with the colours swapped.
+     */
+    static long flipKey(long key) {
+        // red codes sit in the low 32 bits, black codes (red code + 8) in the high 32 bits
+        return (key >>> 32) | (key << 32);
+    }
+
+    /**
+     * Name of the table holding these pieces: letters in PieceType order, stronger side first.
+     */
+    static String canonicalName(String red, String black) {
+        red = sortLetters(red);
+        black = sortLetters(black);
+        int redValue = materialValue(red), blackValue = materialValue(black);
+        if (blackValue > redValue || (blackValue == redValue && black.compareTo(red) > 0)) {
+            return black + "v" + red;
+        }
+        return red + "v" + black;
+    }
+
+    static String sortLetters(String letters) {
+        char[] chars = letters.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            for (int j = i + 1; j < chars.length; j++) {
+                if (LETTERS.indexOf(chars[j]) < LETTERS.indexOf(chars[i])) {
+                    char c = chars[i];
+                    chars[i] = chars[j];
+                    chars[j] = c;
+                }
+            }
+        }
+        return new String(chars);
+    }
+
+    private static int materialValue(String letters) {
+        int value = 0;
+        for (int i = 0; i < letters.length(); i++) {
+            value += PieceSquareTables.pieceValue(typeOf(letters.charAt(i)));
+        }
+        return value;
+    }
+
+    // --- where each piece can stand ---
+
+    static int mirror(int sq) {
+        return BoardEncoding.square(Board.ROWS - 1 - BoardEncoding.rowOf(sq), BoardEncoding.colOf(sq));
+    }
+
+    private static int[] domainOf(int code) {
+        Side side = BoardEncoding.sideOf(code);
+        int[] red;
+        switch (BoardEncoding.typeOf(code)) {
+            case GENERAL:
+                red = new int[9];
+                for (int i = 0; i < 9; i++) red[i] = BoardEncoding.square(7 + i / 3, 3 + i % 3);
+                break;
+            case ADVISOR:
+                red = new int[]{sq(9, 3), sq(9, 5), sq(8, 4), sq(7, 3), sq(7, 5)};
+                break;
+            case ELEPHANT:
+                red = new int[]{sq(9, 2), sq(9, 6), sq(7, 0), sq(7, 4), sq(7, 8), sq(5, 2), sq(5, 6)};
+                break;
+            case SOLDIER: {
+                // anywhere across the river, before it only on the starting files
+                red = new int[55];
+                int n = 0;
+                for (int sq = 0; sq < BoardEncoding.SQUARES; sq++) {
+                    int row = BoardEncoding.rowOf(sq);
+                    if (row <= 4 || (row <= 6 && BoardEncoding.colOf(sq) % 2 == 0)) red[n++] = sq;
+                }
+                break;
+            }
+            default:
+                red = new int[BoardEncoding.SQUARES];
+                for (int sq = 0; sq < red.length; sq++) red[sq] = sq;
+                return red;
+        }
+        if (side == Side.BLACK) {
+            for (int i = 0; i < red.length; i++) red[i] = mirror(red[i]);
+            java.util.Arrays.sort(red);
+        }
+        return red;
+    }
+
+    private static int sq(int row, int col) {
+        return BoardEncoding.square(row, col);
+    }
+}
@@ -0,0 +1,234 @@
+package Tablebase;
+
+import Core.Board;
+import Core.BoardEncoding;
+import Core.MoveGenerator;
+import Core.Moves;
+import data.Side;
+import pieces.Piece;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds distance-to-mate tables by retrograde analysis.
+ * Each table is solved after every table its captures lead into, so a capture's result is
+ * already known. Within a table the move graph is built once, then results are settled ply by
+ * ply: a position is won in n if some move reaches a position lost in n-1, and lost in n once
+ * every move reaches a position the opponent wins, the longest of them in n-1. Whatever never
+ * settles is a draw. A side without a legal move loses, as in the game.
+ * Every table is checked against its moves once solved (see verify) before it is used further.
+ *
+ * Usage: TablebaseGenerator [output directory] [material sets...], e.g. RvAA NPv
+ */
+public class TablebaseGenerator {
+    /** Built when no material set is given. */
+    public static final String[] DEFAULT_SETS = {"RvAA", "RvBB", "RvAB", "NPv", "CAv", "RvN", "RvC", "RvP"};
+
+    private final Map<String, Tablebase> solved = new LinkedHashMap<>();
+    private final Tablebases known = new Tablebases();
+    private final Board board = new Board("tablebase");
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : Tablebases.DEFAULT_DIRECTORY);
+        String[] sets = args.length > 1 ? java.util.Arrays.copyOfRange(args, 1, args.length) : DEFAULT_SETS;
+        Files.createDirectories(dir);
+
+        TablebaseGenerator generator = new TablebaseGenerator();
+        for (String set : sets) {
+            generator.generate(set);
+        }
+        for (Tablebase table : generator.solved.values()) {
+            table.write(dir.resolve(table.getName() + Tablebase.EXTENSION));
+        }
+        System.out.println("Wrote " + generator.solved.size() + " tables to " + dir);
+    }
+
+    /**
+     * Solves the material set and, first, every set it can reach by captures.
+     */
+    public Tablebase generate(String set) {
+        int v = set.indexOf('v');
+        if (v < 0) {
+            throw new IllegalArgumentException("material set needs a 'v' between the sides: " + set);
+        }
+        String red = set.substring(0, v);
+        String black = set.substring(v + 1);
+        String name = Tablebase.canonicalName(red, black);
+        if (solved.containsKey(name)) {
+            return solved.get(name);
+        }
+        for (int i = 0; i < red.length(); i++) {
+            generate(red.substring(0, i) + red.substring(i + 1) + "v" + black);
+        }
+        for (int i = 0; i < black.length(); i++) {
+            generate(red + "v" + black.substring(0, i) + black.substring(i + 1));
+        }
+
+        long start = System.currentTimeMillis();
+        Tablebase table = new Tablebase(name);
+        solve(table);
+        solved.put(name, table);
+        known.add(table);
+        int wrong = verify(table);
+        if (wrong > 0) {
+            throw new IllegalStateException(name + ": " + wrong + " positions disagree with the best of their moves");
+        }
+        System.out.printf("%s: %d slots in %d ms%n", name, table.size(), System.currentTimeMillis() - start);
+        return table;
+    }
+
+    /**
+     * Checks every position of a solved table against its moves: won as quickly as any move
+     * wins, lost as late as the longest of the opponent's wins if every move loses, a draw
+     * otherwise.
+     * @return how many positions disagree
+     */
+    public int verify(Tablebase table) {
+        int wrong = 0;
+        for (int index = 0; index < table.size(); index++) {
+            Side side = Tablebase.sideToMoveAt(index);
+            if (!setUp(table, index) || board.isGeneralInCheck(side.opposite())) continue;
+            int count = MoveGenerator.generateLegal(board, side, moves, 0);
+            int quickestWin = 0, longestLoss = 0;
+            boolean allLost = true;
+            for (int i = 0; i < count; i++) {
+                int move = board.makeMove(Moves.from(moves[i]), Moves.to(moves[i]));
+                int reply = known.probe(board, side.opposite());
+                board.unmakeMove(move);
+                if (reply < 0) {
+                    quickestWin = quickestWin == 0 ? -reply : Math.min(quickestWin, -reply);
+                    allLost = false;
+                } else if (reply == 0) {
+                    allLost = false;
+                } else {
+                    longestLoss = Math.max(longestLoss, reply);
+                }
+            }
+            // a win in v plies is stored as v, a loss in v plies as -v-1
+            int expected = count == 0 ? -1 : quickestWin > 0 ? quickestWin : allLost ? -(longestLoss + 2) : 0;
+            if (table.value(index) != expected) {
+                if (wrong == 0) {
+                    System.out.println(table.getName() + ": slot " + index + " holds " + table.value(index) + ", its moves give " + expected
+                            + " (" + Core.Fen.toFen(board) + ")");
+                }
+                wrong++;
+            }
+        }
+        return wrong;
+    }
+
+    private void solve(Tablebase table) {
+        int size = table.size();
+        short[] values = new short[size];
+        boolean[] settled = new boolean[size];
+
+        // move graph: moves staying in this table, by slot
+        int[] first = new int[size + 1];
+        int[] children = new int[Math.max(16, size)];
+        int edges = 0;
+        // what captures lead to, from the mover's side: quickest win, longest loss, any draw
+        int[] captureWin = new int[size];
+        int[] captureLoss = new int[size];
+        boolean[] captureDraw = new boolean[size];
+        int longestCapture = 0;
+
+        for (int index = 0; index < size; index++) {
+            first[index] = edges;
+            Side side = Tablebase.sideToMoveAt(index);
+            if (!setUp(table, index) || board.isGeneralInCheck(side.opposite())) {
+                settled[index] = true; // not a position, never reached
+                continue;
+            }
+            int count = MoveGenerator.generateLegal(board, side, moves, 0);
+            if (count == 0) {
+                values[index] = -1;
+                settled[index] = true;
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                int move = board.makeMove(Moves.from(moves[i]), Moves.to(moves[i]));
+                if (Moves.isCapture(move)) {
+                    int reply = known.probe(board, side.opposite());
+                    if (reply == Tablebases.NO_ENTRY) {
+                        throw new IllegalStateException("no table after a capture from " + table.getName());
+                    }
+                    if (reply < 0) {
+                        int win = -reply;
+                        captureWin[index] = captureWin[index] == 0 ? win : Math.min(captureWin[index], win);
+                        longestCapture = Math.max(longestCapture, win);
+                    } else if (reply == 0) {
+                        captureDraw[index] = true;
+                    } else {
+                        captureLoss[index] = Math.max(captureLoss[index], reply + 1);
+                        longestCapture = Math.max(longestCapture, reply + 1);
+                    }
+                } else {
+                    if (edges == children.length) {
+                        children = java.util.Arrays.copyOf(children, children.length * 2);
+                    }
+                    children[edges++] = table.index(board, side.opposite(), false);
+                }
+                board.unmakeMove(move);
+            }
+        }
+        first[size] = edges;
+
+        for (int n = 1; ; n++) {
+            boolean changed = false;
+            for (int index = 0; index < size; index++) {
+                if (settled[index]) continue;
+                boolean win = captureWin[index] == n;
+                boolean allLost = captureWin[index] == 0 && !captureDraw[index] && captureLoss[index] <= n;
+                for (int e = first[index]; e < first[index + 1] && !win; e++) {
+                    int child = children[e];
+                    int reply = values[child];
+                    if (settled[child] && reply == -n) {
+                        win = true; // the opponent is lost in n-1
+                    } else if (!settled[child] || reply <= 0 || reply >= n) {
+                        allLost = false;
+                    }
+                }
+                if (win) {
+                    values[index] = (short) n;
+                } else if (allLost) {
+                    values[index] = (short) -(n + 1);
+                } else {
+                    continue;
+                }
+                // settled only after the whole pass, so this pass reads last ply's results only
+                changed = true;
+            }
+            for (int index = 0; index < size; index++) {
+                if (!settled[index] && values[index] != 0) settled[index] = true;
+            }
+            if (!changed && n > longestCapture) break;
+            if (n >= Short.MAX_VALUE - 1) {
+                throw new IllegalStateException(table.getName() + " has mates too long to store");
+            }
+        }
+        table.setValues(values);
+    }
+
+    /**
+     * Puts the pieces of a slot on the board.
+     * @return false if two pieces share a square
+     */
+    private boolean setUp(Tablebase table, int index) {
+        board.clearBoard(Tablebase.sideToMoveAt(index));
+        for (int slot = 0; slot < table.pieceSlots(); slot++) {
+            int sq = table.squareAt(index, slot);
+            if (board.getPieceCode(sq) != BoardEncoding.EMPTY) {
+                return false;
+            }
+            int code = table.codeOf(slot);
+            board.setPieceAt(BoardEncoding.positionOf(sq), Piece.create(BoardEncoding.sideOf(code), BoardEncoding.typeOf(code)));
+        }
+        return true;
+    }
+}
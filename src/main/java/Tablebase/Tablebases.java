@@ -0,0 +1,152 @@
+package Tablebase;
+
+import Core.Board;
+import Core.MoveGenerator;
+import Core.Moves;
+import data.Side;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The endgame tables available to the search, looked up by the material on the board.
+ * A probe is a few popcounts to find the table and one read from it, so the search can ask
+ * at every node once few enough pieces are left.
+ */
+public class Tablebases {
+    public static final String DEFAULT_DIRECTORY = "Tablebases";
+    /** probe answer when no table covers the position */
+    public static final int NO_ENTRY = Integer.MIN_VALUE;
+
+    // each table is listed under its own material and under the colours swapped
+    private long[] keys = new long[0];
+    private Tablebase[] tables = new Tablebase[0];
+    private boolean[] flips = new boolean[0];
+    private int maxPieces = 0;
+
+    /**
+     * Loads every table in dir.
+     * @return the tables, or null if the directory is missing or holds none
+     */
+    public static Tablebases loadDirectory(String dir) {
+        Path path = Paths.get(dir);
+        if (!Files.isDirectory(path)) {
+            return null;
+        }
+        Tablebases tablebases = new Tablebases();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(path, "*" + Tablebase.EXTENSION)) {
+            for (Path file : files) {
+                try {
+                    tablebases.add(Tablebase.load(file));
+                } catch (IOException e) {
+                    System.out.println("Skipping tablebase " + file + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Tablebases not loaded: " + e.getMessage());
+            return null;
+        }
+        if (tablebases.tables.length == 0) {
+            return null;
+        }
+        System.out.println("Tablebases loaded: " + tablebases);
+        return tablebases;
+    }
+
+    public void add(Tablebase table) {
+        long key = table.materialKey();
+        register(key, table, false);
+        if (Tablebase.flipKey(key) != key) {
+            register(Tablebase.flipKey(key), table, true);
+        }
+        maxPieces = Math.max(maxPieces, table.getPieceCount());
+    }
+
+    private void register(long key, Tablebase table, boolean flip) {
+        int n = keys.length;
+        keys = java.util.Arrays.copyOf(keys, n + 1);
+        tables = java.util.Arrays.copyOf(tables, n + 1);
+        flips = java.util.Arrays.copyOf(flips, n + 1);
+        keys[n] = key;
+        tables[n] = table;
+        flips[n] = flip;
+    }
+
+    /**
+     * Most pieces besides the generals in any table; positions with more are never probed.
+     */
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * Exact result for the side to move: v > 0 wins in v plies, v < 0 loses in -v-1 plies,
+     * 0 is a draw. NO_ENTRY if no table covers the position.
+     */
+    public int probe(Board board, Side sideToMove) {
+        int pieces = Long.bitCount(board.getOccupancyLow(Side.RED)) + Long.bitCount(board.getOccupancyHigh(Side.RED))
+                + Long.bitCount(board.getOccupancyLow(Side.BLACK)) + Long.bitCount(board.getOccupancyHigh(Side.BLACK));
+        if (pieces - 2 > maxPieces || board.getGeneralSquare(Side.RED) < 0 || board.getGeneralSquare(Side.BLACK) < 0) {
+            return NO_ENTRY;
+        }
+        long key = Tablebase.materialKey(board);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != key) continue;
+            int index = tables[i].index(board, sideToMove, flips[i]);
+            return index < 0 ? NO_ENTRY : tables[i].value(index);
+        }
+        return NO_ENTRY;
+    }
+
+    /**
+     * Best move by the tables for a won or lost position: the quickest win, or the slowest loss.
+     * @return the packed move, or Moves.NONE for a draw, a position without a table, or one
+     * where some reply leads to material no table covers
+     */
+    public int pickMove(Board board, Side side) {
+        int value = probe(board, side);
+        if (value == NO_ENTRY || value == 0) {
+            return Moves.NONE;
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(board, side, moves, 0);
+        int best = Moves.NONE;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            int move = board.makeMove(Moves.from(moves[i]), Moves.to(moves[i]));
+            int reply = probe(board, side.opposite());
+            board.unmakeMove(move);
+            if (reply == NO_ENTRY) {
+                return Moves.NONE;
+            }
+            int rank = rank(reply);
+            if (rank > bestRank) {
+                bestRank = rank;
+                best = move;
+            }
+        }
+        return best;
+    }
+
+    // how good a reply's value is for the side that played into it: the opponent losing soonest
+    // is best, then draws, then the opponent winning as late as possible
+    private static int rank(int reply) {
+        if (reply < 0) return Short.MAX_VALUE - (-reply - 1);
+        if (reply == 0) return 0;
+        return -reply;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < tables.length; i++) {
+            if (flips[i]) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(tables[i].getName());
+        }
+        return sb.toString();
+    }
+}
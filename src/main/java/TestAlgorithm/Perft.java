@@ -0,0 +1,165 @@
+package TestAlgorithm;
+
+import Core.Board;
+import Core.Fen;
+import Core.MoveGenerator;
+import Core.Moves;
+import data.Side;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Perft: counts the leaf nodes of the legal move tree to a fixed depth, to check the move
+ * generator against known counts and to time it on its own.
+ * From the start position the counts are 44, 1920, 79666, 3290240, 133312995 for depths 1-5;
+ * PerftTest checks them to depth 4, and a middlegame position.
+ *
+ * Usage: Perft <depth> [threads] [FEN or save file]
+ * Prints the count under each root move (divide), the total and the speed.
+ */
+public class Perft {
+    // deepest perft, the move buffers of a Counter are sized for it
+    public static final int MAX_DEPTH = 32;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: Perft <depth> [threads] [FEN or save file]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        if (depth < 0 || depth > MAX_DEPTH) {
+            System.out.println("Depth must be 0 to " + MAX_DEPTH);
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        Board board = new Board("perft");
+        if (args.length > 2 && args[2].indexOf('/') >= 0) {
+            // the FEN's fields may come as separate arguments
+            Fen.parse(String.join(" ", java.util.Arrays.copyOfRange(args, 2, args.length)), board);
+        } else if (args.length > 2) {
+            board.loadBoardFromFile("perft", args[2]);
+        }
+        run(board, depth, threads);
+    }
+
+    /**
+     * Divides at the root, prints each move's count, the total and nodes per second.
+     * @return the total
+     */
+    public static long run(Board board, int depth, int threads) throws Exception {
+        if (depth == 0) {
+            // the position itself, nothing to divide
+            System.out.println("perft 0: 1 nodes");
+            return 1;
+        }
+        long start = System.nanoTime();
+        List<String> moves = new ArrayList<>();
+        long[] counts = divide(board, depth, threads, moves);
+        long elapsed = System.nanoTime() - start;
+
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            System.out.println(moves.get(i) + ": " + counts[i]);
+            total += counts[i];
+        }
+        long millis = elapsed / 1_000_000;
+        System.out.printf("perft %d: %d nodes in %d ms, %d nodes/s, %d thread(s)%n",
+                depth, total, millis, total * 1_000_000_000L / Math.max(1, elapsed), threads);
+        return total;
+    }
+
+    /**
+     * Leaf count under each root move. The root moves are shared out among the threads,
+     * each on its own copy of the board.
+     * @param names filled with the root moves, in the order of the counts
+     * @throws IllegalArgumentException if depth is below 1, where there are no root moves to divide by,
+     * or above MAX_DEPTH
+     */
+    public static long[] divide(Board board, int depth, int threads, List<String> names) throws Exception {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("divide needs a depth of 1 to " + MAX_DEPTH + ", not " + depth);
+        }
+        Side side = board.getCurrentTurn();
+        int[] root = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(board, side, root, 0);
+        long[] counts = new long[count];
+        for (int i = 0; i < count; i++) {
+            names.add(Moves.toString(root[i]));
+        }
+        if (depth == 1) {
+            java.util.Arrays.fill(counts, 1);
+            return counts;
+        }
+
+        if (threads <= 1) {
+            Counter counter = new Counter(board);
+            for (int i = 0; i < count; i++) {
+                counts[i] = counter.countAfter(root[i], depth - 1);
+            }
+            return counts;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int move = root[i];
+                Board copy = new Board(board);
+                results.add(pool.submit(() -> new Counter(copy).countAfter(move, depth - 1)));
+            }
+            for (int i = 0; i < count; i++) {
+                counts[i] = results.get(i).get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return counts;
+    }
+
+    /**
+     * Leaf count to depth from the board's position, on one thread.
+     * @throws IllegalArgumentException if depth is below 0 or above MAX_DEPTH
+     */
+    public static long perft(Board board, int depth) {
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("perft needs a depth of 0 to " + MAX_DEPTH + ", not " + depth);
+        }
+        return new Counter(board).count(board.getCurrentTurn(), depth, 0);
+    }
+
+    // one board and its move buffers, for one thread
+    private static class Counter {
+        private final Board board;
+        private final int[][] moves = new int[MAX_DEPTH][MoveGenerator.MAX_MOVES];
+
+        Counter(Board board) {
+            this.board = board;
+        }
+
+        long countAfter(int move, int depth) {
+            Side side = board.getCurrentTurn();
+            int played = board.makeMove(Moves.from(move), Moves.to(move));
+            long nodes = count(side.opposite(), depth, 0);
+            board.unmakeMove(played);
+            return nodes;
+        }
+
+        long count(Side side, int depth, int ply) {
+            if (depth == 0) return 1;
+            int[] buffer = moves[ply];
+            int count = MoveGenerator.generateLegal(board, side, buffer, 0);
+            // the last ply needs only how many moves there are
+            if (depth == 1) return count;
+            long nodes = 0;
+            for (int i = 0; i < count; i++) {
+                int move = board.makeMove(Moves.from(buffer[i]), Moves.to(buffer[i]));
+                nodes += count(side.opposite(), depth - 1, ply + 1);
+                board.unmakeMove(move);
+            }
+            return nodes;
+        }
+    }
+}
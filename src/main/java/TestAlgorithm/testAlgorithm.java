@@ -9,6 +9,8 @@ import data.Position;
 import java.util.List;
 import java.util.Scanner;
 import AIMove.AIMove;
+import AIMove.SearchResult;
+import Core.Fen;
 
 public class testAlgorithm {
     public static void main(String[] args) throws Exception {
@@ -24,6 +26,8 @@ public class testAlgorithm {
 
 
         AIMove bot=new AIMove(3);
+        //hint shows how the search went depth by depth
+        bot.setVerbose(true);
 
 
         Scanner sc= new Scanner(System.in);
@@ -125,8 +129,66 @@ public class testAlgorithm {
 
                 if(input.equals("hint")){
                     System.out.printf("current best move is ");
-                    MoveRecord bestmov= bot.findBestMove(game.getBoard(),game.getBoard().getCurrentTurn());
-                    System.out.println(bestmov.fromPosition+"to"+bestmov.toPosition);
+                    SearchResult best= bot.findBestLine(game.getBoard(),game.getBoard().getCurrentTurn());
+                    System.out.println(best.move.fromPosition+"to"+best.move.toPosition);
+                    System.out.println("expected line: "+best);
+                    System.out.printf("%d thread(s): %d nodes, %d nodes/s, %.1f%% cutoffs on first move%n",
+                            bot.getThreadCount(),bot.getLastNodes(),bot.getLastNodesPerSecond(),bot.getFirstMoveCutoffRate());
+                    System.out.println(bot.getTranspositionTable());
+                }
+
+                if(input.equals("smp")){
+                    // nodes per second of a fixed depth search with 1, 2, 4 ... threads
+                    int cores=Runtime.getRuntime().availableProcessors();
+                    long baseNps=0;
+                    for(int threads=1;threads<=cores;threads*=2){
+                        AIMove smpBot=new AIMove(5);
+                        smpBot.setThreadCount(threads);
+                        smpBot.findBestMove(game.getBoard(),game.getBoard().getCurrentTurn());
+                        long nps=smpBot.getLastNodesPerSecond();
+                        if(threads==1) baseNps=nps;
+                        System.out.printf("threads %d: %d nodes/s, x%.2f%n",threads,nps,(double)nps/Math.max(1,baseNps));
+                    }
+                    continue;
+                }
+
+                if(input.equals("pruning")){
+                    // nodes searched at each fixed depth with null move pruning and late move reductions off and on
+                    for(int depth=1;depth<=6;depth++){
+                        long[] nodes=new long[4];
+                        for(int mode=0;mode<4;mode++){
+                            AIMove abBot=new AIMove(depth);
+                            abBot.setNullMovePruning((mode&1)!=0);
+                            abBot.setLateMoveReductions((mode&2)!=0);
+                            abBot.findBestMove(game.getBoard(),game.getBoard().getCurrentTurn());
+                            nodes[mode]=abBot.getLastNodes();
+                        }
+                        System.out.printf("depth %d: none %d, null move %d, lmr %d, both %d%n",depth,nodes[0],nodes[1],nodes[2],nodes[3]);
+                    }
+                    continue;
+                }
+
+                if(input.equals("fen")){
+                    System.out.println(Fen.toFen(game.getBoard()));
+                    continue;
+                }
+
+                if(input.equals("setfen")){
+                    System.out.println("Please enter the FEN to start from:");
+                    game.getBoard().setStartPosition(sc.nextLine().trim());
+                    game.printBoard();
+                    System.out.printf("Now it is %s's turn%n",game.getBoard().getCurrentTurn());
+                    continue;
+                }
+
+                if(input.equals("perft")){
+                    // leaf count of the legal move tree from the current position, see Perft
+                    System.out.println("Please enter the depth and the number of threads:");
+                    String[] perftArgs=sc.nextLine().trim().split(" ");
+                    int depth=Integer.parseInt(perftArgs[0]);
+                    int threads=perftArgs.length>1?Integer.parseInt(perftArgs[1]):1;
+                    Perft.run(game.getBoard(),depth,threads);
+                    continue;
                 }
 
                 System.out.println("Invalid input. Please enter row and column separated by a space.");
@@ -1,6 +1,11 @@
 package chinese_chess;
 
 import AIMove.AIMove;
+import AIMove.SearchResult;
+import OpeningBook.OpeningBook;
+import Tablebase.Tablebases;
+import Core.Board;
+import Core.Fen;
 import Game.Game;
 import GameDialogues.GameDialogue;
 import GameSave.MoveRecord;
@@ -8,12 +13,15 @@ import UserData.UserDataKeeper;
 import data.GameStatus;
 import data.Position;
 import data.Side;
+import javafx.application.Platform;
 import javafx.collections.ListChangeListener;
 import javafx.geometry.Insets;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import javafx.scene.shape.Line;
@@ -21,12 +29,16 @@ import javafx.scene.text.Font;
 import javafx.stage.Stage;
 import sounds.GameSoundFX;
 
+import java.util.concurrent.CompletableFuture;
+
 public class GraphicController {
     private static GameSoundFX soundFX = new GameSoundFX();
     static private double MENU_PADDING = ConstantValues.MENU_PADDING;
     private static GridPoint Selection = new GridPoint(-1,-1);
     static double GridWidth=1.0;
     public static boolean HoverChangedFlag = false;
+    //难度4-6每步的思考时间（毫秒）
+    private static final long[] DIFFICULTY_TIME_LIMITS = {1000, 2000, 5000};
 
     static GridPoint getSelection(){
         return Selection;
@@ -249,6 +261,7 @@ public class GraphicController {
         elements.RedMenu.getChildren().add(elements.RedRegret);
         elements.BlackRegret.setOnAction(event -> {
             boolean isGuest = elements.Username.equals(new String(""));
+            cancelAIAssist(elements);
             try {
                 elements.game.getBoard().regretLastMove(isGuest);
             } catch (Exception e) {
@@ -262,6 +275,7 @@ public class GraphicController {
         });
         elements.RedRegret.setOnAction(event -> {
             boolean isGuest = elements.Username.equals(new String(""));
+            cancelAIAssist(elements);
             try {
                 elements.game.getBoard().regretLastMove(isGuest);
             } catch (Exception e) {
@@ -328,48 +342,8 @@ public class GraphicController {
         elements.RedAIAssist = new Button("机器代下");
         elements.BlackMenu.getChildren().add(elements.BlackAIAssist);
         elements.RedMenu.getChildren().add(elements.RedAIAssist);
-        elements.BlackAIAssist.setOnAction(actionEvent -> {
-            if(elements.game.getGameStatus().equals(GameStatus.ONGOING)) {
-                MoveRecord move = null;
-                try {
-                    move = elements.aiMove.findBestMove(elements.game.getBoard(),elements.game.getBoard().getCurrentTurn());
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-                try {
-                    elements.game.touchPosition(move.fromPosition);
-                    elements.game.touchPosition(move.toPosition);
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            }
-            try {
-                GraphicController.refreshWindow(elements);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        });
-        elements.RedAIAssist.setOnAction(actionEvent -> {
-            if(elements.game.getGameStatus().equals(GameStatus.ONGOING)) {
-                MoveRecord move = null;
-                try {
-                    move = elements.aiMove.findBestMove(elements.game.getBoard(),elements.game.getBoard().getCurrentTurn());
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-                try {
-                    elements.game.touchPosition(move.fromPosition);
-                    elements.game.touchPosition(move.toPosition);
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            }
-            try {
-                GraphicController.refreshWindow(elements);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        });
+        elements.BlackAIAssist.setOnAction(actionEvent -> startAIAssist(elements));
+        elements.RedAIAssist.setOnAction(actionEvent -> startAIAssist(elements));
 
         elements.SignIn = new Button();
         if(elements.Username.equals(new String(""))){
@@ -415,6 +389,8 @@ public class GraphicController {
         elements.ChessFont = Font.loadFont("file:HZW005.ttf",20);
 
         elements.aiMove = new AIMove(2);
+        elements.aiMove.setOpeningBook(OpeningBook.openIfExists(OpeningBook.DEFAULT_PATH));
+        elements.aiMove.setTablebases(Tablebases.loadDirectory(Tablebases.DEFAULT_DIRECTORY));
 
         elements.Altermode = new Button("摆棋");
         elements.GameMenu.getChildren().add(elements.Altermode);
@@ -432,14 +408,60 @@ public class GraphicController {
                 throw new RuntimeException(e);
             }
         });
+        //局面以FEN文本经剪贴板导出导入，导入只在摆棋模式下
+        elements.CopyPosition = new Button("复制局面");
+        elements.GameMenu.getChildren().add(elements.CopyPosition);
+        elements.CopyPosition.setOnAction(actionEvent -> {
+            ClipboardContent content = new ClipboardContent();
+            content.putString(Fen.toFen(elements.game.getBoard()));
+            Clipboard.getSystemClipboard().setContent(content);
+        });
+        elements.PastePosition = new Button("粘贴局面");
+        elements.GameMenu.getChildren().add(elements.PastePosition);
+        elements.PastePosition.setOnAction(actionEvent -> {
+            if(elements.game.getGameStatus()!=GameStatus.ALTERING){
+                elements.Dialogue.startInfoDialogue(elements,"粘贴局面","请先进入摆棋模式",stage);
+                return;
+            }
+            String fen = Clipboard.getSystemClipboard().getString();
+            try {
+                cancelAIAssist(elements);
+                elements.game.getBoard().setStartPosition(fen==null? "": fen.trim());
+            } catch (IllegalArgumentException e) {
+                elements.Dialogue.startInfoDialogue(elements,"局面格式错误",e.getMessage(),stage);
+                return;
+            }
+            try {
+                GraphicController.refreshWindow(elements);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
         elements.DifficultyChoice = new ComboBox<String>();
-        elements.DifficultyChoice.getItems().addAll("1 - 草履虫","2 - 蛇鼠","3 - 人类","4 - 柯洁(长考)","5 - 邪神(一年下一步)","6 - 上帝(别等，相信我)");
+        elements.DifficultyChoice.getItems().addAll("1 - 草履虫","2 - 蛇鼠","3 - 人类","4 - 柯洁(限时1秒)","5 - 邪神(限时2秒)","6 - 上帝(限时5秒)");
         elements.DifficultyChoice.setValue("人机难度（默认草履虫）");
         elements.aiMove.setMaxDepth(1);
         elements.GameMenu.getChildren().add(elements.DifficultyChoice);
+        elements.AIExpectedLine = new Label("");
+        elements.AIExpectedLine.setWrapText(true);
+        elements.AIExpectedLine.setStyle("-fx-font-size: 12; -fx-text-fill: gray;");
+        elements.GameMenu.getChildren().add(elements.AIExpectedLine);
         elements.DifficultyChoice.valueProperty().addListener(change -> {
             int curdiff = Integer.parseInt(String.valueOf(elements.DifficultyChoice.getValue().charAt(0)));
-            elements.aiMove.setMaxDepth(curdiff);
+            //1-3按固定深度搜索，4-6按时间限制逐层加深
+            if(curdiff<=3){
+                elements.aiMove.setMaxDepth(curdiff);
+                elements.aiMove.setTimeLimit(0);
+                elements.aiMove.setThreadCount(1);
+                elements.aiMove.setPondering(false);
+            }else{
+                elements.aiMove.setMaxDepth(AIMove.MAX_DEPTH);
+                elements.aiMove.setTimeLimit(DIFFICULTY_TIME_LIMITS[curdiff-4]);
+                //限时难度用上所有核心
+                elements.aiMove.setThreadCount(Runtime.getRuntime().availableProcessors());
+                //限时难度在对方思考时后台预想
+                elements.aiMove.setPondering(true);
+            }
             System.out.println(curdiff);
         });
 
@@ -447,6 +469,74 @@ public class GraphicController {
 
     }
 
+    //机器代下：在后台线程搜索，搜索期间界面照常响应
+    static void startAIAssist(GraphicElements elements){
+        if(!elements.game.getGameStatus().equals(GameStatus.ONGOING)){
+            return;
+        }
+        if(elements.aiSearch!=null){
+            System.out.println("AI is still thinking");
+            return;
+        }
+        Game game = elements.game;
+        Board board = game.getBoard();
+        long positionKey = board.getZobristKey();
+        int step = board.moveHistory.size();
+
+        CompletableFuture<SearchResult> search = elements.aiMove.findBestLineAsync(board, board.getCurrentTurn());
+        elements.aiSearch = search;
+        search.whenComplete((result, error) -> Platform.runLater(() -> {
+            if(elements.aiSearch==search){
+                elements.aiSearch = null;
+            }
+            if(error!=null){
+                if(!search.isCancelled()) error.printStackTrace();
+            }
+            //只有局面没有变化时才落子
+            else if(result!=null && elements.game==game && game.getGameStatus()==GameStatus.ONGOING
+                    && !board.isViewing() && board.moveHistory.size()==step && board.getZobristKey()==positionKey){
+                board.deselect();
+                try {
+                    game.touchPosition(result.move.fromPosition);
+                    game.touchPosition(result.move.toPosition);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                //显示机器预计的后续走法
+                elements.AIExpectedLine.setText("预计走法："+result);
+                //对方思考时，机器按预计的应着继续想
+                if(game.getGameStatus()==GameStatus.ONGOING){
+                    elements.aiMove.startPondering(board, result);
+                }
+            }else{
+                System.out.println("Position changed while thinking, AI move dropped");
+            }
+            try {
+                refreshWindow(elements);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }));
+        try {
+            refreshWindow(elements);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static void cancelAIAssist(GraphicElements elements){
+        if(elements.aiMove!=null){
+            elements.aiMove.stopPondering();
+        }
+        if(elements.aiSearch!=null){
+            elements.aiSearch.cancel(false);
+            elements.aiSearch = null;
+        }
+        if(elements.AIExpectedLine!=null){
+            elements.AIExpectedLine.setText("");
+        }
+    }
+
     public static void refreshWindow(GraphicElements elements) throws Exception {
         if(elements.game.getGameStatus()== GameStatus.ONGOING){
             elements.Altermode.setText("摆棋");
@@ -468,6 +558,11 @@ public class GraphicController {
             elements.BlackRegret.setDisable(true);
             elements.RedRegret.setDisable(true);
         }
+        if(elements.aiSearch!=null){
+            elements.WhosTurn.setText("机器思考中……");
+            elements.BlackAIAssist.setDisable(true);
+            elements.RedAIAssist.setDisable(true);
+        }
         double BoardWidth;
         double BoardHeight;
         elements.GameRoot.setPrefSize(elements.WindowRoot.getWidth(),elements.WindowRoot.getHeight());
@@ -498,6 +593,7 @@ public class GraphicController {
         elements.bLabel.setMaxWidth((elements.GameRoot.getWidth()- BoardWidth)/2-2*ConstantValues.MENU_PADDING);
         elements.rLabel.setMaxWidth((elements.GameRoot.getWidth()- BoardWidth)/2-2*ConstantValues.MENU_PADDING);
         elements.gLabel.setMaxWidth((elements.GameRoot.getWidth()- BoardWidth)/2-2*ConstantValues.MENU_PADDING);
+        elements.AIExpectedLine.setMaxWidth((elements.GameRoot.getWidth()- BoardWidth)/2-2*ConstantValues.MENU_PADDING);
 
         elements.DifficultyChoice.setPrefWidth(0.8*(elements.GameRoot.getWidth()- BoardWidth)/2);
 
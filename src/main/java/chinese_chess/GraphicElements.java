@@ -1,6 +1,7 @@
 package chinese_chess;
 
 import AIMove.AIMove;
+import AIMove.SearchResult;
 import Core.Board;
 import Game.Game;
 import GameDialogues.GameDialogue;
@@ -15,6 +16,8 @@ import javafx.scene.text.Font;
 import javafx.stage.Stage;
 import javafx.scene.control.ComboBox;
 
+import java.util.concurrent.CompletableFuture;
+
 public class GraphicElements {
     public Pane WindowRoot;
     public Stage stage;
@@ -67,8 +70,11 @@ public class GraphicElements {
 
     public AIMove aiMove;
     public Button BlackAIAssist, RedAIAssist;
+    public CompletableFuture<SearchResult> aiSearch;//正在后台进行的机器代下搜索，没有则为null
+    public Label AIExpectedLine;//机器代下后预计的后续走法
 
     public Button Altermode;//摆棋
+    public Button CopyPosition, PastePosition;//局面导出导入
 
     public ComboBox<String> DifficultyChoice;
 }
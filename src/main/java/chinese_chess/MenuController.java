@@ -18,6 +18,7 @@ import static chinese_chess.ConstantValues.MENU_PADDING;
 
 public class MenuController {
     static void initGame(Stage stage, GraphicElements elements, TypeOfInit type) throws Exception {
+        GraphicController.cancelAIAssist(elements);
         try{
             elements.GameMenu.getChildren().remove(elements.RecordControlMenu);
             if(elements.game.getGameStatus()==GameStatus.ALTERING){
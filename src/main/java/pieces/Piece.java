@@ -1,12 +1,12 @@
 package pieces;
 
 import Core.Board;
+import Core.BoardEncoding;
+import Core.MoveGenerator;
 import data.Side;
 import data.PieceType;
 import data.Position;
-import Game.Game;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public abstract class Piece {
@@ -17,63 +17,54 @@ public abstract class Piece {
 
     public boolean isSelected=false;
 
+    // a chariot or cannon in the middle of an empty board has the most moves: 9+8
+    private static final int MAX_PIECE_MOVES = 17;
+
     public Piece(Side side, PieceType pieceType){
         this.side = side;
         this.pieceType=pieceType;
     }
 
 
+    /**
+     * Moves of the piece that do not leave its general in check. Taken from the board's legal
+     * moves for the position, which are generated once and shared with everything else asking.
+     */
     public List<Position> getLegalMoves(Board board, Position currentPosition) throws Exception {
-        List<Position> unfiltered = getUnfilteredLegalMoves(board, currentPosition);
-        if (unfiltered == null) return null;
-
-        List<Position> legalMoves = new ArrayList<>();
-
-        //create a simulate board in order to protect the game board
-        Board simBoard= new Board("sim");
-
-        // For each unfiltered move, simulate it on the simBoard (apply then undo)
-        for (Position toPos : new ArrayList<>(unfiltered)){
-
-            //initialize simBoard
-            for(int i=0;i<10;i++){
-                for(int j=0;j<9;j++){
-                    Position p=new Position(i,j);
-                    simBoard.setPieceAt(p,board.getPieceAt(p));
-                }
-            }
-
-            // Save pieces at from and to
-            Piece movingPiece = simBoard.getPieceAt(currentPosition);
-            Piece capturedPiece = simBoard.getPieceAt(toPos);
-
-            // Apply move
-            simBoard.movePiece(currentPosition,toPos,false, true);
-            //board.setPieceAt(toPos, movingPiece);
-            //board.setPieceAt(currentPosition, null);
-
-            // After applying, check whether own general is threatened by opponent using unfiltered moves
-            Position ownGeneralPos = simBoard.getGeneralPosition(this.side);
-            boolean isInCheck = false;
-
-            List<Position> threatened = simBoard.getThreatenedPositions(this.side);
-            isInCheck = Game.positionInList(ownGeneralPos,threatened);
-
-
+        return board.getLegalMoves(currentPosition);
+    }
 
-            // Undo move
-            board.setPieceAt(currentPosition, movingPiece);
-            board.setPieceAt(toPos, capturedPiece);
+    /**
+     * Moves allowed by the piece's own rules, ignoring whether they leave the general in check.
+     * The rules themselves live in MoveGenerator; this is the List based view the UI uses.
+     */
+    public List<Position> getUnfilteredLegalMoves(Board board, Position currentPosition) {
+        int[] moves = new int[MAX_PIECE_MOVES];
+        int count = MoveGenerator.generatePiece(board, BoardEncoding.square(currentPosition), code(), moves, 0);
+        return MoveGenerator.targets(moves, 0, count);
+    }
 
-            if (!isInCheck) {
-                legalMoves.add(toPos);
-            }
+    /**
+     * A new piece of the given side and type.
+     */
+    public static Piece create(Side side, PieceType type){
+        switch (type){
+            case GENERAL: return new GeneralPiece(side);
+            case ADVISOR: return new AdvisorPiece(side);
+            case ELEPHANT: return new ElephantPiece(side);
+            case CHARIOT: return new ChariotPiece(side);
+            case HORSE: return new HorsePiece(side);
+            case CANNON: return new CannonPiece(side);
+            default: return new SoldierPiece(side);
         }
-
-        return legalMoves;
     }
 
-    public abstract List<Position> getUnfilteredLegalMoves(Board board, Position currentPosition);
+    /**
+     * Piece code of this piece, see BoardEncoding.
+     */
+    public int code(){
+        return BoardEncoding.code(side, pieceType);
+    }
 
     public void setCurrentPosition(Position position){
         this.currentPosition=position;
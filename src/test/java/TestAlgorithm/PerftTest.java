@@ -0,0 +1,64 @@
+package TestAlgorithm;
+
+import Core.Board;
+import Core.Fen;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the move generator against published perft counts.
+ */
+class PerftTest {
+    // a middlegame position with checks, pins and cannon screens
+    private static final String MIDDLEGAME = "r1ba1a3/4kn3/2n1b4/pNp1p1p1p/4c4/6P2/P1P2R2P/1CcC5/9/2BAKAB2 w - - 0 1";
+
+    private static long[] counts(String fen, int maxDepth) {
+        Board board = new Board("perft");
+        Fen.parse(fen, board);
+        long[] counts = new long[maxDepth + 1];
+        for (int depth = 0; depth <= maxDepth; depth++) {
+            counts[depth] = Perft.perft(board, depth);
+        }
+        return counts;
+    }
+
+    @Test
+    void startPosition() {
+        assertArrayEquals(new long[]{1, 44, 1920, 79666, 3290240}, counts(Fen.START, 4));
+    }
+
+    @Test
+    void middlegame() {
+        assertArrayEquals(new long[]{1, 38, 1128, 43929}, counts(MIDDLEGAME, 3));
+    }
+
+    @Test
+    void divideAddsUpToPerft() throws Exception {
+        Board board = new Board("perft");
+        Fen.parse(MIDDLEGAME, board);
+        String before = Fen.toFen(board);
+        ArrayList<String> names = new ArrayList<>();
+        long total = 0;
+        for (long count : Perft.divide(board, 3, 2, names)) {
+            total += count;
+        }
+        assertEquals(38, names.size());
+        assertEquals(43929, total);
+        // the board is left as it was
+        assertEquals(before, Fen.toFen(board));
+    }
+
+    @Test
+    void depthOutOfRange() {
+        Board board = new Board("perft");
+        assertThrows(IllegalArgumentException.class, () -> Perft.perft(board, -1));
+        assertThrows(IllegalArgumentException.class, () -> Perft.perft(board, Perft.MAX_DEPTH + 1));
+        assertThrows(IllegalArgumentException.class, () -> Perft.divide(board, 0, 1, new ArrayList<>()));
+        assertThrows(IllegalArgumentException.class, () -> Perft.divide(board, Perft.MAX_DEPTH + 1, 1, new ArrayList<>()));
+    }
+}